@@ -0,0 +1,51 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The actors currently in the store, keyed by id.
+ * Adding and removing are O(1) and never copy the registry, the live count is exact,
+ * and iteration is weakly consistent: it never throws and never blocks arrivals or departures,
+ * but may or may not see actors that come and go while it runs.
+ *
+ * @param <T> The kind of actor, e.g. Customer or Assistant.
+ */
+public class ActorRegistry<T> implements Iterable<T> {
+    private final ConcurrentHashMap<Integer, T> actors = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger(); // Kept separately because ConcurrentHashMap.size() is only an estimate under updates
+
+    // Adds an actor; returns false if another actor already has this id
+    public boolean register(int id, T actor) {
+        if (actors.putIfAbsent(id, actor) != null) {
+            return false;
+        }
+        count.incrementAndGet();
+        return true;
+    }
+
+    // Removes an actor; returns false if it was not registered
+    public boolean deregister(int id, T actor) {
+        if (!actors.remove(id, actor)) {
+            return false;
+        }
+        count.decrementAndGet();
+        return true;
+    }
+
+    // Number of registered actors
+    public int size() {
+        return count.get();
+    }
+
+    // Read-only, weakly consistent view of the registered actors
+    public Collection<T> view() {
+        return Collections.unmodifiableCollection(actors.values());
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return view().iterator();
+    }
+}
@@ -0,0 +1,688 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * An alternative to the threaded store for very large crowds. Instead of one Runnable per customer,
+ * every customer's state lives in primitive arrays (state, target section, ticks waited, patience, basket)
+ * and the whole crowd is advanced one tick at a time in fixed-size chunks on a fork-join pool.
+ *
+ * Sections are never locked. Each tick runs in three steps:
+ * 1. advance: every chunk moves its customers on and counts the claims they make on each section, by ticks waited;
+ * 2. resolve: the claims are added up per section and as many are granted as the section has items,
+ *    longest waiting first, which is the same order the section waitlists serve in the threaded model;
+ * 3. settle: every chunk hands out its grants, records purchases and abandonments and sends full baskets to the checkout.
+ * Assistants, deliveries and the checkout are few, so they are kept in arrays too but advanced by the tick thread.
+ *
+ * The metrics come back as a RunResult, the same as a threaded run from SimulationRunner.
+ * Differences from the threaded model: assistants are not hired or retired by the staffing controller,
+ * deliveries follow the fixed schedule, the checkout lanes are modelled as one queue shared by the cashiers,
+ * which is what work stealing between lanes amounts to, and the average assistant work time is the time
+ * spent on one stocking trip rather than the threaded model's running total.
+ */
+public class ArrayTickEngine {
+    private static final int CHUNK_SIZE = 1 << 14; // Customers per fork-join task
+    private static final int CHECKOUT_HISTOGRAM_TICKS = 4096; // Checkout waits at or above this are counted in the last bucket
+    private static final int WALK_TICKS = 10; // Same walk as Assistant.processDelivery: 10 ticks plus one per item
+    private static final int RETURN_TICKS = 10;
+
+    // Customer states
+    private static final byte LEFT = 0; // Slot is free
+    private static final byte SHOPPING = 1; // Choosing the next section
+    private static final byte WAITING = 2; // Claiming an item from a section
+    private static final byte CHECKOUT = 3; // Queueing and being scanned
+
+    // Assistant states
+    private static final byte IDLE = 0;
+    private static final byte WALKING = 1;
+    private static final byte STOCKING = 2;
+    private static final byte RETURNING = 3;
+    private static final byte ON_BREAK = 4;
+
+    private final Config config;
+    private final ForkJoinPool pool;
+    private final Random random = new Random(); // Used by the tick thread only: deliveries and assistants
+    private final int maxWait; // Longest any customer waits, the patience of the store's customers
+
+    // Sections and delivery categories
+    private final String[] sectionNames;
+    private final String[] categories;
+    private final int[] sectionCategory; // Category index of each section
+    private final int[] sectionItems;
+    private final int[] deliveryBox; // Items waiting to be stocked, per category
+    private final int[] grantThreshold; // Per section: customers that have waited longer than this get an item this tick
+
+    // Customers, one slot per index
+    private final byte[] state;
+    private final int[] section;
+    private final int[] waited;
+    private final int[] patience;
+    private final int[] basket;
+    private final int[] basketTarget;
+    private final int[] basketsDone;
+    private final int[] remaining; // Checkout ticks left
+    private final int[] seed; // Per customer xorshift state, so chunks draw random numbers without sharing a generator
+    private final int[] freeSlots; // Slots of departed customers, reused by arrivals
+    private int freeCount = 0;
+    private int activeCustomers;
+    private double arrivalCredit = 0;
+
+    // Assistants
+    private final byte[] assistantState;
+    private final int[] assistantRemaining;
+    private final int[] assistantSection;
+    private final int[] assistantItems;
+    private final int[] ticksSinceBreak;
+    private final int[] breakInterval;
+    private final int[] assistantWorkTicks;
+
+    private final Chunk[] chunks;
+    private int tick = 0;
+    private int ticksSinceDelivery = 0;
+    private long checkoutBacklogItems = 0; // Items queued at the checkout and not scanned yet
+    private int checkoutWait = 0; // Ticks a basket joining the checkout this tick will queue
+
+    // Run totals
+    private long purchases;
+    private long abandonments;
+    private long emptySectionHits;
+    private long emptySectionTicks;
+    private long restocks;
+    private long itemsDelivered;
+    private long assistantTicks;
+    private long stockingTrips; // Trips finished by assistants
+    private long customerTicks; // Customer slots advanced while occupied
+    private final List<String> dailyReports = new ArrayList<>();
+
+    /**
+     * Creates an engine with a crowd of customers already in the store.
+     *
+     * @param config           The store configuration.
+     * @param initialCustomers Customers in the store at tick 0.
+     * @param capacity         Most customers in the store at once; arrivals beyond this are turned away.
+     * @param pool             The fork-join pool the customer chunks run on.
+     */
+    public ArrayTickEngine(Config config, int initialCustomers, int capacity, ForkJoinPool pool) {
+        this.config = config;
+        this.pool = pool;
+        this.maxWait = Math.max(1, (int) (100 * config.customerPatienceMultiplier));
+
+        List<String> names = ThriftStore.sectionNamesFor(config);
+        this.sectionNames = names.toArray(new String[0]);
+        this.categories = names.stream().map(ThriftStore::categoryOf).distinct().toArray(String[]::new);
+        this.sectionCategory = new int[sectionNames.length];
+        for (int s = 0; s < sectionNames.length; s++) {
+            sectionCategory[s] = Arrays.asList(categories).indexOf(ThriftStore.categoryOf(sectionNames[s]));
+        }
+        this.sectionItems = new int[sectionNames.length];
+        this.deliveryBox = new int[categories.length];
+        this.grantThreshold = new int[sectionNames.length];
+
+        this.state = new byte[capacity];
+        this.section = new int[capacity];
+        this.waited = new int[capacity];
+        this.patience = new int[capacity];
+        this.basket = new int[capacity];
+        this.basketTarget = new int[capacity];
+        this.basketsDone = new int[capacity];
+        this.remaining = new int[capacity];
+        this.seed = new int[capacity];
+        this.freeSlots = new int[capacity];
+        SplittableRandom seeds = new SplittableRandom();
+        for (int i = 0; i < capacity; i++) {
+            seed[i] = seeds.nextInt() | 1; // xorshift needs a non-zero state
+        }
+        for (int i = capacity - 1; i >= 0; i--) {
+            freeSlots[freeCount++] = i;
+        }
+        for (int i = 0; i < Math.min(initialCustomers, capacity); i++) {
+            admit();
+        }
+
+        int assistants = config.numberOfAssistants;
+        this.assistantState = new byte[assistants];
+        this.assistantRemaining = new int[assistants];
+        this.assistantSection = new int[assistants];
+        this.assistantItems = new int[assistants];
+        this.ticksSinceBreak = new int[assistants];
+        this.breakInterval = new int[assistants];
+        this.assistantWorkTicks = new int[assistants];
+        for (int a = 0; a < assistants; a++) {
+            breakInterval[a] = nextBreakInterval();
+        }
+
+        this.chunks = new Chunk[Math.max(1, (capacity + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = new Chunk(c * CHUNK_SIZE, Math.min(capacity, (c + 1) * CHUNK_SIZE));
+        }
+
+        // The first delivery is shelved straight away, as in ThriftStore.initialDelivery
+        int[] first = randomDelivery(10);
+        for (int category = 0; category < categories.length; category++) {
+            if (first[category] > 0) {
+                sectionItems[emptiestSection(category)] += first[category];
+                restocks++;
+            }
+        }
+    }
+
+    /**
+     * Runs the given number of ticks.
+     *
+     * @param ticks The number of ticks to simulate.
+     * @return The metrics of the run so far, in the same form as a threaded run.
+     */
+    public RunResult run(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            step();
+        }
+        return result(ticks);
+    }
+
+    // Simulates one tick
+    private void step() {
+        tick++;
+        customerTicks += activeCustomers;
+        pool.invoke(new Pass(Pass.ADVANCE, 0, chunks.length));
+        resolveClaims();
+        pool.invoke(new Pass(Pass.SETTLE, 0, chunks.length));
+        collectChunkTotals();
+        advanceCheckout();
+        advanceAssistants();
+        advanceDeliveries();
+        admitArrivals();
+        for (int items : sectionItems) {
+            if (items == 0) {
+                emptySectionTicks++;
+            }
+        }
+        if (tick % ThriftStore.TICKS_PER_DAY == 0) {
+            dailyReports.add(dailyReport());
+        }
+    }
+
+    // Grants each section's items to the claims made on it this tick, longest waiting first
+    private void resolveClaims() {
+        for (int s = 0; s < sectionNames.length; s++) {
+            long claims = 0;
+            for (Chunk chunk : chunks) {
+                chunk.allowance[s] = 0;
+                claims += chunk.claims[s];
+            }
+            int grants = (int) Math.min(sectionItems[s], claims);
+            sectionItems[s] -= grants;
+            if (grants == claims) {
+                grantThreshold[s] = -1; // everyone claiming here gets an item
+                continue;
+            }
+            grantThreshold[s] = Integer.MAX_VALUE; // nobody does, unless a wait level is found below
+            int left = grants;
+            for (int w = maxWait; w >= 0 && left > 0; w--) {
+                long atLevel = 0;
+                for (Chunk chunk : chunks) {
+                    atLevel += chunk.claimsByWait[s][w];
+                }
+                if (atLevel < left) {
+                    left -= atLevel;
+                    continue;
+                }
+                // Everyone who waited longer than w is served; the rest of the grants go to claims at w, in chunk order
+                grantThreshold[s] = w;
+                for (Chunk chunk : chunks) {
+                    int share = Math.min(chunk.claimsByWait[s][w], left);
+                    chunk.allowance[s] = share;
+                    left -= share;
+                }
+            }
+        }
+    }
+
+    // Adds up what the chunks recorded this tick and frees the slots of departed customers
+    private void collectChunkTotals() {
+        long joinedCheckout = 0;
+        for (Chunk chunk : chunks) {
+            purchases += chunk.purchasesThisTick;
+            abandonments += chunk.abandonmentsThisTick;
+            emptySectionHits += chunk.emptyHitsThisTick;
+            joinedCheckout += chunk.checkoutItemsThisTick;
+            activeCustomers -= chunk.departedCount;
+            for (int d = 0; d < chunk.departedCount; d++) {
+                freeSlots[freeCount++] = chunk.departed[d];
+            }
+        }
+        checkoutBacklogItems += joinedCheckout;
+    }
+
+    // Cashiers scan the shared checkout queue; a basket joining next tick waits for everything ahead of it
+    private void advanceCheckout() {
+        double itemsPerTick = config.numberOfCashiers / (double) Math.max(1, config.scanTicksPerItem);
+        if (itemsPerTick <= 0) {
+            checkoutBacklogItems = 0; // nobody on the tills, customers leave without paying
+            checkoutWait = 0;
+            return;
+        }
+        checkoutBacklogItems = Math.max(0, checkoutBacklogItems - (long) Math.ceil(itemsPerTick));
+        checkoutWait = (int) Math.ceil(checkoutBacklogItems / itemsPerTick);
+    }
+
+    // Moves each assistant through the same walk, stock, return and break cycle as Assistant
+    private void advanceAssistants() {
+        for (int a = 0; a < assistantState.length; a++) {
+            assistantTicks++;
+            switch (assistantState[a]) {
+                case ON_BREAK:
+                    if (--assistantRemaining[a] <= 0) {
+                        assistantState[a] = IDLE;
+                        ticksSinceBreak[a] = 0;
+                        breakInterval[a] = nextBreakInterval();
+                    }
+                    continue;
+                case WALKING:
+                    if (--assistantRemaining[a] <= 0) {
+                        assistantState[a] = STOCKING;
+                        assistantRemaining[a] = Math.max(1, assistantItems[a]);
+                    }
+                    break;
+                case STOCKING:
+                    if (--assistantRemaining[a] <= 0) {
+                        sectionItems[assistantSection[a]] += assistantItems[a];
+                        restocks++;
+                        assistantState[a] = RETURNING;
+                        assistantRemaining[a] = RETURN_TICKS;
+                    }
+                    break;
+                case RETURNING:
+                    if (--assistantRemaining[a] <= 0) {
+                        assistantState[a] = IDLE;
+                        stockingTrips++;
+                    }
+                    break;
+                default:
+                    if (ticksSinceBreak[a] >= breakInterval[a]) {
+                        assistantState[a] = ON_BREAK;
+                        assistantRemaining[a] = config.breakDurationTicks;
+                        continue;
+                    }
+                    startStockingTrip(a);
+                    break;
+            }
+            ticksSinceBreak[a]++;
+            if (assistantState[a] != IDLE) {
+                assistantWorkTicks[a]++;
+            }
+        }
+    }
+
+    // Sends an idle assistant with the delivery box's most needed category to its emptiest section
+    private void startStockingTrip(int a) {
+        int chosen = -1;
+        int fewestOnShelf = Integer.MAX_VALUE;
+        for (int category = 0; category < categories.length; category++) {
+            if (deliveryBox[category] > 0) {
+                int onShelf = sectionItems[emptiestSection(category)];
+                if (onShelf < fewestOnShelf) {
+                    fewestOnShelf = onShelf;
+                    chosen = category;
+                }
+            }
+        }
+        if (chosen < 0) {
+            return;
+        }
+        assistantItems[a] = deliveryBox[chosen];
+        deliveryBox[chosen] = 0;
+        assistantSection[a] = emptiestSection(chosen);
+        assistantState[a] = WALKING;
+        assistantRemaining[a] = WALK_TICKS + assistantItems[a];
+    }
+
+    // Fixed delivery schedule, the same as DeliveryThread with demand driven deliveries turned off
+    private void advanceDeliveries() {
+        if (++ticksSinceDelivery < config.deliveryFrequencyTicks) {
+            return;
+        }
+        ticksSinceDelivery = 0;
+        int[] delivery = randomDelivery(config.maxItemsPerDelivery);
+        for (int category = 0; category < categories.length; category++) {
+            deliveryBox[category] += delivery[category];
+            itemsDelivered += delivery[category];
+        }
+    }
+
+    // Lets in new customers at the configured arrival rate, reusing departed customers' slots
+    private void admitArrivals() {
+        arrivalCredit += config.customerArrivalRate;
+        while (arrivalCredit >= 1) {
+            arrivalCredit--;
+            admit();
+        }
+    }
+
+    // Puts a new customer into a free slot, if there is one
+    private void admit() {
+        if (freeCount == 0) {
+            return;
+        }
+        int i = freeSlots[--freeCount];
+        state[i] = SHOPPING;
+        waited[i] = 0;
+        patience[i] = maxWait;
+        basket[i] = 0;
+        basketsDone[i] = 0;
+        basketTarget[i] = 1 + nextInt(seed, i, Math.max(1, config.maxBasketSize));
+        activeCustomers++;
+    }
+
+    // Items spread over the categories one to three at a time
+    private int[] randomDelivery(int totalItems) {
+        int[] delivery = new int[categories.length];
+        while (totalItems > 0) {
+            int items = random.nextInt(Math.min(totalItems, 3)) + 1;
+            delivery[random.nextInt(categories.length)] += items;
+            totalItems -= items;
+        }
+        return delivery;
+    }
+
+    private int emptiestSection(int category) {
+        int emptiest = -1;
+        for (int s = 0; s < sectionNames.length; s++) {
+            if (sectionCategory[s] == category && (emptiest < 0 || sectionItems[s] < sectionItems[emptiest])) {
+                emptiest = s;
+            }
+        }
+        return emptiest;
+    }
+
+    private int nextBreakInterval() {
+        return config.minBreakInterval + random.nextInt(Math.max(1, config.maxBreakInterval - config.minBreakInterval + 1));
+    }
+
+    // xorshift step on one customer's own state; returns a number in [0, bound)
+    private static int nextInt(int[] seed, int i, int bound) {
+        int x = seed[i];
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        seed[i] = x;
+        return (int) (((x & 0xFFFFFFFFL) * bound) >>> 32);
+    }
+
+    // Builds the RunResult from the chunks' histograms and the run totals
+    private RunResult result(int ticks) {
+        long[] waitHistogram = new long[maxWait + 1];
+        long[] checkoutHistogram = new long[CHECKOUT_HISTOGRAM_TICKS];
+        long waitSum = 0;
+        long waitCount = 0;
+        long checkoutSum = 0;
+        long checkoutCount = 0;
+        for (Chunk chunk : chunks) {
+            for (int w = 0; w < waitHistogram.length; w++) {
+                waitHistogram[w] += chunk.waitHistogram[w];
+            }
+            for (int w = 0; w < checkoutHistogram.length; w++) {
+                checkoutHistogram[w] += chunk.checkoutHistogram[w];
+            }
+            waitSum += chunk.waitSum;
+            waitCount += chunk.waitCount;
+            checkoutSum += chunk.checkoutSum;
+            checkoutCount += chunk.checkoutCount;
+        }
+        long workSum = 0;
+        for (int work : assistantWorkTicks) {
+            workSum += work;
+        }
+        return new RunResult(ticks,
+                waitCount == 0 ? 0 : (double) waitSum / waitCount,
+                stockingTrips == 0 ? 0 : (double) workSum / stockingTrips,
+                purchases, abandonments, restocks, percentileOf(waitHistogram, 95),
+                checkoutCount == 0 ? 0 : (double) checkoutSum / checkoutCount, percentileOf(checkoutHistogram, 95),
+                emptySectionHits, emptySectionTicks, itemsDelivered, assistantTicks, assistantState.length, true, dailyReports);
+    }
+
+    // Smallest value at or below which p percent of the histogram's samples fall
+    private static int percentileOf(long[] histogram, int p) {
+        long total = Arrays.stream(histogram).sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(p / 100.0 * total);
+        long seen = 0;
+        for (int value = 0; value < histogram.length; value++) {
+            seen += histogram[value];
+            if (seen >= rank) {
+                return value;
+            }
+        }
+        return histogram.length - 1;
+    }
+
+    private String dailyReport() {
+        return String.format("Day %d: %d customers in the store, %d purchases, %d abandonments, %d empty section hits, %d items waiting at the checkout",
+                tick / ThriftStore.TICKS_PER_DAY, activeCustomers, purchases, abandonments, emptySectionHits, checkoutBacklogItems);
+    }
+
+    //getter for the customers in the store
+    public int getActiveCustomers() {
+        return activeCustomers;
+    }
+
+    //getter for the customer slots advanced so far, the engine's unit of work
+    public long getCustomerTicks() {
+        return customerTicks;
+    }
+
+    //getter for the names of the sections, in the order their items are kept
+    public String[] getSectionNames() {
+        return sectionNames.clone();
+    }
+
+    // One fork-join pass over a range of chunks; splits until each task has one chunk
+    private final class Pass extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // never serialized; RecursiveAction is Serializable
+        private static final int ADVANCE = 0;
+        private static final int SETTLE = 1;
+        private final int step;
+        private final int from;
+        private final int to;
+
+        private Pass(int step, int from, int to) {
+            this.step = step;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                if (step == ADVANCE) {
+                    chunks[from].advance();
+                } else {
+                    chunks[from].settle();
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Pass(step, from, middle), new Pass(step, middle, to));
+        }
+    }
+
+    // A fixed range of customer slots with its own counters, so chunks never write to shared memory
+    private final class Chunk {
+        private final int from;
+        private final int to;
+        private final int[][] claimsByWait; // [section][ticks waited] claims made this tick
+        private final int[] claims; // Claims made this tick, per section
+        private final int[] allowance; // Grants still to hand out to claims at the section's threshold wait
+        private final long[] waitHistogram;
+        private final long[] checkoutHistogram = new long[CHECKOUT_HISTOGRAM_TICKS];
+        private final int[] departed; // Slots freed this tick
+        private int departedCount;
+        private long waitSum;
+        private long waitCount;
+        private long checkoutSum;
+        private long checkoutCount;
+        private long purchasesThisTick;
+        private long abandonmentsThisTick;
+        private long emptyHitsThisTick;
+        private long checkoutItemsThisTick;
+
+        private Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+            this.claimsByWait = new int[sectionNames.length][maxWait + 1];
+            this.claims = new int[sectionNames.length];
+            this.allowance = new int[sectionNames.length];
+            this.waitHistogram = new long[maxWait + 1];
+            this.departed = new int[to - from];
+        }
+
+        // Step 1: customers finish checking out, choose a section and claim an item from it
+        @SuppressWarnings("fallthrough") // a customer can move through several states in one tick
+        private void advance() {
+            for (int s = 0; s < claims.length; s++) {
+                if (claims[s] > 0) {
+                    Arrays.fill(claimsByWait[s], 0);
+                    claims[s] = 0;
+                }
+            }
+            departedCount = 0;
+            int sections = sectionNames.length;
+            int basketsPerVisit = config.basketsPerVisit;
+            int maxBasket = Math.max(1, config.maxBasketSize);
+            for (int i = from; i < to; i++) {
+                switch (state[i]) {
+                    case CHECKOUT:
+                        if (--remaining[i] > 0) {
+                            continue;
+                        }
+                        if (basketsPerVisit > 0 && ++basketsDone[i] >= basketsPerVisit) {
+                            leave(i);
+                            continue;
+                        }
+                        basketTarget[i] = 1 + nextInt(seed, i, maxBasket);
+                        // fall through: straight on to the next section, as a threaded customer does
+                    case SHOPPING:
+                        section[i] = nextInt(seed, i, sections);
+                        waited[i] = 0;
+                        state[i] = WAITING;
+                        // fall through
+                    case WAITING:
+                        claimsByWait[section[i]][waited[i]]++;
+                        claims[section[i]]++;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        // Step 3: hand out this chunk's grants, then move customers on
+        private void settle() {
+            purchasesThisTick = 0;
+            abandonmentsThisTick = 0;
+            emptyHitsThisTick = 0;
+            checkoutItemsThisTick = 0;
+            int waitBeforeCheckout = checkoutWait;
+            int scanTicks = Math.max(1, config.scanTicksPerItem);
+            for (int i = from; i < to; i++) {
+                if (state[i] != WAITING) {
+                    continue;
+                }
+                int s = section[i];
+                int w = waited[i];
+                boolean granted = w > grantThreshold[s] || (w == grantThreshold[s] && allowance[s]-- > 0);
+                if (granted) {
+                    purchasesThisTick++;
+                    recordWait(w);
+                    if (++basket[i] < basketTarget[i]) {
+                        state[i] = SHOPPING;
+                        continue;
+                    }
+                    checkoutItemsThisTick += basket[i];
+                    checkoutSum += waitBeforeCheckout;
+                    checkoutCount++;
+                    checkoutHistogram[Math.min(waitBeforeCheckout, CHECKOUT_HISTOGRAM_TICKS - 1)]++;
+                    remaining[i] = waitBeforeCheckout + basket[i] * scanTicks;
+                    basket[i] = 0;
+                    state[i] = CHECKOUT;
+                } else {
+                    if (w == 0) {
+                        emptyHitsThisTick++; // the section could not serve the customer straight away
+                    }
+                    waited[i] = ++w;
+                    if (w >= patience[i]) {
+                        abandonmentsThisTick++;
+                        recordWait(w);
+                        checkoutItemsThisTick += basket[i]; // pays for whatever is already in the basket on the way out
+                        basket[i] = 0;
+                        leave(i);
+                    }
+                }
+            }
+        }
+
+        private void recordWait(int w) {
+            waitSum += w;
+            waitCount++;
+            waitHistogram[Math.min(w, maxWait)]++;
+        }
+
+        private void leave(int i) {
+            state[i] = LEFT;
+            departed[departedCount++] = i;
+        }
+    }
+
+    /**
+     * Runs a large crowd through the engine and reports its throughput, or compares it with the threaded model.
+     * Usage: java ArrayTickEngine [customers] [ticks], or java ArrayTickEngine compare [ticks]
+     *
+     * @param args Optional mode, number of customers and number of ticks.
+     * @throws InterruptedException if the threaded comparison run is interrupted.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("compare")) {
+            Config config = demoConfig(3, 100, 10);
+            int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+            int customers = config.numberOfAssistants * 2;
+            try (SimulationRunner runner = new SimulationRunner()) {
+                System.out.println("Threaded: " + runner.runTicks(config, ticks, 1));
+            }
+            System.out.println("Arrays:   " + new ArrayTickEngine(config, customers, customers, ForkJoinPool.commonPool()).run(ticks));
+            return;
+        }
+
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Config config = demoConfig(Math.max(1, customers / 20), 1, Math.max(10, customers / 2000)); // staff and deliveries sized for the crowd
+        config.setCustomerArrivals(customers / 100.0, 0, config.customerPoolSize); // replace the customers that give up
+        config.setCheckout(config.numberOfCheckoutLanes, Math.max(1, customers / 1000), config.cashierBatchSize, config.scanTicksPerItem);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        ArrayTickEngine engine = new ArrayTickEngine(config, customers, customers, pool);
+        engine.run(50); // warm up
+        long before = engine.getCustomerTicks();
+        long start = System.nanoTime();
+        RunResult result = engine.run(ticks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double rate = (engine.getCustomerTicks() - before) / seconds;
+        System.out.println(result);
+        System.out.printf("%d customers, %d ticks in %.2fs: %.1f million customer-ticks per second on %d threads (%.1f million per core)%n",
+                engine.getActiveCustomers(), ticks, seconds, rate / 1e6, pool.getParallelism(),
+                rate / 1e6 / Runtime.getRuntime().availableProcessors());
+    }
+
+    // The store used by the demos, with fixed deliveries so both models see the same supply
+    private static Config demoConfig(int assistants, int deliveryFrequencyTicks, int itemsPerDelivery) {
+        Config config = new Config(assistants, 1, 1, 1, 1, 1, 1, 0.1, 0.2, 0.15, 0.25, 0.05, 0.2,
+                deliveryFrequencyTicks, itemsPerDelivery, 1.5, 200, 300, 150);
+        config.setConsoleLogging(false);
+        config.setReplenishment(false, config.supplierLeadTicks, config.reorderReviewTicks);
+        config.setStaffingBounds(assistants, assistants); // the array engine keeps a fixed team
+        return config;
+    }
+}
@@ -12,6 +12,8 @@ public class Assistant implements Runnable {
     private final Random random = new Random(); // random intervals
     private int ticksSinceLastBreak; 
     private int totalWorkTime; // Accumulate total work time here
+    private boolean breakPostponed = false; // Whether the current due break has already been put off
+    private volatile boolean retiring = false; // Set by the staffing controller; the assistant leaves after its current trip
 
     // Assistant constructor
     public Assistant(ThriftStore store, int id) {
@@ -20,6 +22,21 @@ public class Assistant implements Runnable {
         this.totalWorkTime = 0; // Initialize to zero
         this.ticksSinceLastBreak = 0; // Initialize ticks since last break to zero
     }
+    //getter for the assistant id
+    public int getId() {
+        return id;
+    }
+
+    // Asks the assistant to leave the floor once it has finished its current stocking trip
+    public void retire() {
+        retiring = true;
+    }
+
+    //check if the assistant has been asked to retire
+    public boolean isRetiring() {
+        return retiring;
+    }
+
     /**
      * The main logic for the assistant's lifecycle, handling deliveries, stocking, and taking breaks.
      */
@@ -27,17 +44,18 @@ public class Assistant implements Runnable {
     public void run() {
         try {
             //
-            while (!Thread.currentThread().isInterrupted()) {
+            while (!Thread.currentThread().isInterrupted() && !retiring) {
                 // Wait for deliveries if necessary or take a break
-                if (store.deliveryBoxIsEmpty()) {
-                    waitOnDeliveries(); //wait, there  are no deliveries yet
+                if (!store.hasStockingWork()) {
+                    waitOnDeliveries(); //wait, there  are no deliveries yet, or none that are needed yet
+                    continue; // look again, the assistant may have been retired while waiting
                 }
-                //if the assistant needs a break
-                if (needsBreak()) {
+                //if the assistant needs a break, and the store is not in the middle of a rush
+                if (needsBreak() && !postponeBreak()) {
                     assistantTakeBreak(); //take break!
                 
                 } else {
-                    Map<String, Integer> itemsToStock = store.takeItemsFromDelivery();
+                    Map<String, Integer> itemsToStock = store.takeItemsForStockingTrip();
                     processDelivery(itemsToStock);
                 }
                 // Simulate the time required to process the delivery or wait.
@@ -53,6 +71,10 @@ public class Assistant implements Runnable {
         } finally {
             // Ensure the total work time is recorded when the thread is interrupted
             store.recordAssistantWorkTime(totalWorkTime);
+            store.removeAssistant(this);
+            if (retiring) {
+                logAndUpdateGUI(String.format("<Tick %d> [Thread %d] [Assistant %d] has finished their shift and left the store.", store.getCurrentTick(), Thread.currentThread().getId(), id));
+            }
         }
     }
 
@@ -64,6 +86,21 @@ public class Assistant implements Runnable {
         return ticksSinceLastBreak >= breakInterval;
     }
 
+    // Puts off a due break while the store is in a rush, but never for longer than maxBreakPostponementTicks
+    private boolean postponeBreak() {
+        Config config = store.getConfig();
+        boolean overdue = ticksSinceLastBreak >= config.maxBreakInterval + config.maxBreakPostponementTicks;
+        if (overdue || store.getLoadLevel() != LoadMonitor.Level.RUSH) {
+            return false;
+        }
+        if (!breakPostponed) {
+            breakPostponed = true;
+            store.recordPostponedBreak();
+            logAndUpdateGUI(String.format("<Tick %d> [Thread %d] [Assistant %d] is putting off their break because the store is in a rush.", store.getCurrentTick(), Thread.currentThread().getId(), id));
+        }
+        return true;
+    }
+
     // Handles the logic behind the helper taking a break. Pauses the thread to mimic a break in time.
     private void assistantTakeBreak() throws InterruptedException {
         Config config = store.getConfig();
@@ -71,11 +108,14 @@ public class Assistant implements Runnable {
         int breakDuration = config.breakDurationTicks;
         logAndUpdateGUI(String.format("<Tick %d> [Thread %d] [Assistant %d] is taking a break for %d ticks.", store.getCurrentTick(), Thread.currentThread().getId(), id, breakDuration));
 
-        Thread.sleep(breakDuration * ThriftStore.TICK_TIME_SIZE);
+        SimulationEvents.Break breakEvent = new SimulationEvents.Break();
+        breakEvent.begin();
+        store.sleepTicks(breakDuration);
+        breakEvent.record(store.getCurrentTick(), null, "Assistant", id, breakDuration);
+        store.publishEvent(StoreEvent.Type.BREAK, "Assistant", id, null, breakDuration, null); // Recorded for reporting by the store's metrics subscriber
         ticksSinceLastBreak = 0; // Reset the counter after the break.
+        breakPostponed = false;
         logAndUpdateGUI(String.format("<Tick %d> [Thread %d] [Assistant %d] is back from break.", store.getCurrentTick(), Thread.currentThread().getId(), id));
-
-        store.recordAssistantBreakTime(breakDuration); // Record the break time for reporting purposes.
     }
 
     //Generates a random interval to simulate the duration of work. This replicates the time required to process deliveries or stock things.
@@ -88,33 +128,69 @@ public class Assistant implements Runnable {
         //Sleeping for an unknown amount of time simulates the wait for deliveries.
         int waitTicks = random.nextInt(50) + 50;
         logAndUpdateGUI(String.format("<Tick %d> [Thread %d] [Assistant %d] is waiting for deliveries for %d ticks.", store.getCurrentTick(), Thread.currentThread().getId(), id, waitTicks));
-        Thread.sleep(waitTicks * ThriftStore.TICK_TIME_SIZE);
+        if (store.getConfig().proactiveStocking) {
+            // Wait on the delivery box so a delivery or a forecast stock-out can call us back early
+            long waitStart = System.nanoTime();
+            store.awaitStockingWork(waitTicks);
+            waitTicks = store.ticksSince(waitStart);
+        } else {
+            store.sleepTicks(waitTicks);
+        }
         ticksSinceLastBreak += waitTicks; //Calculate the wait time for the next break interval.
     }
 
+    // Walks each batch of delivered items to its section, stocks it and walks back
     private void processDelivery(Map<String, Integer> itemsToStock) throws InterruptedException {
-        itemsToStock.forEach((section, itemCount) -> {
+        for (Map.Entry<String, Integer> entry : itemsToStock.entrySet()) {
+            String section = store.resolveStockingTarget(entry.getKey());
+            int itemCount = entry.getValue();
+            if (!store.hasSection(section)) {
+                continue; // this store has no section for the category
+            }
+
+            int walkToTicks = 10 + itemCount;
+            logAndUpdateGUI(String.format("<Tick %d> [Thread %d] [Assistant %d] has collected %d items and is walking to %s to stock it with them, taking %d ticks.", store.getCurrentTick(), Thread.currentThread().getId(), id, itemCount, section,  walkToTicks));
+            SimulationEvents.StockingPhase walkEvent = new SimulationEvents.StockingPhase("walk", itemCount);
+            walkEvent.begin();
+            store.sleepTicks(walkToTicks);
+            walkEvent.record(store.getCurrentTick(), section, "Assistant", id, walkToTicks);
+
+            // Another assistant may already be stocking this section; sleep until it hands the section over
+            boolean claimed = store.startStockingSection(section);
+            int stockingTicks = itemCount;
+            logAndUpdateGUI(String.format("<Tick %d> [Thread %d] [Assistant %d] is stocking %s section with %d items, taking %d ticks.", store.getCurrentTick(), Thread.currentThread().getId(), id, section, itemCount, stockingTicks));
+            SimulationEvents.StockingPhase stockEvent = new SimulationEvents.StockingPhase("stock", itemCount);
+            stockEvent.begin();
             try {
-                int walkToTicks = 10 + itemCount;
-                logAndUpdateGUI(String.format("<Tick %d> [Thread %d] [Assistant %d] has collected %d items and is walking to %s to stock it with them, taking %d ticks.", store.getCurrentTick(), Thread.currentThread().getId(), id, itemCount, section,  walkToTicks));
-                Thread.sleep(walkToTicks * ThriftStore.TICK_TIME_SIZE);
-
-                int stockingTicks = itemCount;
-                logAndUpdateGUI(String.format("<Tick %d> [Thread %d] [Assistant %d] is stocking %s section with %d items, taking %d ticks.", store.getCurrentTick(), Thread.currentThread().getId(), id, section, itemCount, stockingTicks));
-                Thread.sleep(stockingTicks * ThriftStore.TICK_TIME_SIZE);
-
-                int returnTicks = 10;
-                logAndUpdateGUI(String.format("<Tick %d> [Thread %d] [Assistant %d]is returning from %s section after stocking, taking %d ticks.", store.getCurrentTick(), Thread.currentThread().getId(), id, section, returnTicks));
-                Thread.sleep(returnTicks * ThriftStore.TICK_TIME_SIZE);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                store.sleepTicks(stockingTicks);
+            } finally {
+                if (store.getConfig().sectionActors) {
+                    // The actor queues the items behind our claim and shelves them as we release it, while we walk back
+                    store.stockSectionAsync(section, itemCount);
+                    if (claimed) {
+                        store.finishStockingSection(section);
+                    }
+                } else {
+                    // Release the section before adding the items, otherwise the add would wait on ourselves
+                    if (claimed) {
+                        store.finishStockingSection(section);
+                    }
+                    store.stockSection(section, itemCount);
+                }
+                stockEvent.record(store.getCurrentTick(), section, "Assistant", id, stockingTicks);
             }
-        });
+
+            int returnTicks = 10;
+            logAndUpdateGUI(String.format("<Tick %d> [Thread %d] [Assistant %d]is returning from %s section after stocking, taking %d ticks.", store.getCurrentTick(), Thread.currentThread().getId(), id, section, returnTicks));
+            SimulationEvents.StockingPhase returnEvent = new SimulationEvents.StockingPhase("return", 0);
+            returnEvent.begin();
+            store.sleepTicks(returnTicks);
+            returnEvent.record(store.getCurrentTick(), section, "Assistant", id, returnTicks);
+        }
     }
 
     //reflects the actions of the assistant in the store's graphical user interface.
     private void logAndUpdateGUI(String message) {
-        System.out.println(message);
-        store.getGui().updateAssistantInformation(message);
+        store.log("Assistant", id, message); // The console and the GUI pick it up from the store's event bus
     }
 }
@@ -0,0 +1,40 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The items a customer takes to the checkout. The customer waits on the basket until a cashier has scanned it.
+ */
+public class Basket {
+    final int customerId;
+    final int items;
+    final long enqueuedNanos; // When the basket joined a lane, used for the checkout queue wait
+    private final CountDownLatch checkedOut = new CountDownLatch(1);
+
+    // Basket constructor
+    public Basket(int customerId, int items) {
+        this.customerId = customerId;
+        this.items = items;
+        this.enqueuedNanos = System.nanoTime();
+    }
+
+    // Called by the cashier once the basket has been scanned
+    void complete() {
+        checkedOut.countDown();
+    }
+
+    /**
+     * Waits until a cashier has checked the basket out or the timeout has passed.
+     *
+     * @param timeoutNanos The longest time to wait, in nanoseconds.
+     * @return true if the basket was checked out, false if the wait timed out.
+     * @throws InterruptedException if the customer is interrupted while waiting.
+     */
+    public boolean awaitCheckout(long timeoutNanos) throws InterruptedException {
+        return checkedOut.await(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Waits until a cashier that has already taken the basket finishes scanning it
+    public void awaitCheckout() throws InterruptedException {
+        checkedOut.await();
+    }
+}
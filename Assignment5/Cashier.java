@@ -0,0 +1,61 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A cashier working a home checkout lane. Baskets are taken in batches; when the home lane is empty
+ * the cashier steals a batch from the longest lane instead of standing idle.
+ */
+public class Cashier implements Runnable {
+    private static final int IDLE_WAIT_TICKS = 50; // Longest an idle cashier waits before looking at the lanes again
+    private final ThriftStore store;
+    private final int id;
+    private final CheckoutLane homeLane;
+    private final List<Basket> batch = new ArrayList<>();
+
+    // Cashier constructor
+    public Cashier(ThriftStore store, int id, CheckoutLane homeLane) {
+        this.store = store;
+        this.id = id;
+        this.homeLane = homeLane;
+    }
+
+    @Override
+    public void run() {
+        int batchSize = store.getConfig().cashierBatchSize;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.clear();
+                if (homeLane.drainTo(batch, batchSize) == 0) {
+                    CheckoutLane longest = store.getLongestCheckoutLane();
+                    if (longest == null || longest.drainTo(batch, batchSize) == 0) {
+                        store.awaitCheckoutWork(IDLE_WAIT_TICKS); // every lane is empty; the next basket queued wakes a cashier
+                        continue;
+                    }
+                    store.log(String.format("<Tick %d> [Thread %d] [Cashier %d] took %d baskets from lane %d to help out.",
+                            store.getCurrentTick(), Thread.currentThread().getId(), id, batch.size(), longest.getNumber()));
+                }
+                checkOut(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Let any customer whose basket was in hand go rather than leaving them waiting
+            batch.forEach(Basket::complete);
+        }
+    }
+
+    // Scans a batch of baskets, recording how long each one queued for
+    private void checkOut(List<Basket> baskets) throws InterruptedException {
+        int items = 0;
+        for (Basket basket : baskets) {
+            store.recordCheckoutWaitTime(store.ticksSince(basket.enqueuedNanos));
+            items += basket.items;
+        }
+        store.sleepTicks(items * store.getConfig().scanTicksPerItem);
+        for (Basket basket : baskets) {
+            basket.complete();
+        }
+        store.log(String.format("<Tick %d> [Thread %d] [Cashier %d] checked out %d baskets with %d items.",
+                store.getCurrentTick(), Thread.currentThread().getId(), id, baskets.size(), items));
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One checkout lane. Baskets are queued on a lock-free multi-producer multi-consumer queue,
+ * so customers joining and cashiers draining the lane never block each other.
+ */
+public class CheckoutLane {
+    private final int number;
+    private final ConcurrentLinkedQueue<Basket> queue = new ConcurrentLinkedQueue<>(); // Non-blocking Michael-Scott queue
+    private final AtomicInteger length = new AtomicInteger(); // Kept alongside the queue because its size() walks every node
+
+    // CheckoutLane constructor
+    public CheckoutLane(int number) {
+        this.number = number;
+    }
+
+    // Adds a basket to the back of the lane
+    public void enqueue(Basket basket) {
+        queue.offer(basket);
+        length.incrementAndGet();
+    }
+
+    /**
+     * Takes a basket out of the lane before a cashier reaches it, e.g. when its customer gives up queueing.
+     *
+     * @param basket The basket to take out.
+     * @return true if the basket was still queued, false if a cashier already has it.
+     */
+    public boolean remove(Basket basket) {
+        if (queue.remove(basket)) {
+            length.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves up to maxBaskets baskets from the front of the lane into the batch.
+     *
+     * @param batch      The list the baskets are added to.
+     * @param maxBaskets The most baskets to take.
+     * @return The number of baskets taken.
+     */
+    public int drainTo(List<Basket> batch, int maxBaskets) {
+        int taken = 0;
+        Basket basket;
+        while (taken < maxBaskets && (basket = queue.poll()) != null) {
+            length.decrementAndGet();
+            batch.add(basket);
+            taken++;
+        }
+        return taken;
+    }
+
+    //getter for the number of baskets queued in the lane
+    public int getLength() {
+        return length.get();
+    }
+
+    //getter for the lane number
+    public int getNumber() {
+        return number;
+    }
+}
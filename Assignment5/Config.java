@@ -14,11 +14,50 @@ public class Config {
     public final double customerPurchaseProbabilityBooks;
     public int deliveryFrequencyTicks;
     public final int maxItemsPerDelivery;
-    public final double customerPatienceMultiplier;
+    public double customerPatienceMultiplier;
     public final int minBreakInterval;
     public final int maxBreakInterval;
     public final int breakDurationTicks;
-    public final int busyCustomerThreshold;
+    public int minAssistants = 1; // Fewest assistants the staffing controller will keep on the floor
+    public int maxAssistants = 6; // Most assistants the staffing controller will hire
+    public int targetWaitTicks = 20; // Customer wait time the staffing controller tries to hold
+    public int staffingEvaluationTicks = 50; // How often the staffing controller re-evaluates, in ticks
+    public int staffingCooldownTicks = 150; // Minimum ticks between two staffing changes
+    public double staffingHysteresis = 0.25; // Fraction around targetWaitTicks where staffing is left alone
+    public boolean proactiveStocking = true; // Shelve deliveries by forecast demand instead of as they come
+    public double demandSmoothing = 0.05; // Weight of the latest tick in the sales rate moving average
+    public int forecastHorizonTicks = 60; // Sections predicted to run low within this many ticks are restocked first
+    public int ticksPerMinute = 10; // Width of a "minute" bucket in the metrics history
+    public long metricsMemoryBudgetBytes = 4L * 1024 * 1024; // Memory the metrics history may use, however long the run
+    public String metricsFile = null; // File the metrics history is saved to at the end of each day, or null to keep it in memory only
+    public boolean consoleLogging = true; // Print every actor action to the console
+    public int numberOfCheckoutLanes = 3; // Checkout lanes customers queue in
+    public int numberOfCashiers = 2; // Cashiers working the lanes; 0 means customers leave without checking out
+    public int cashierBatchSize = 4; // Most baskets a cashier takes from a lane at once
+    public int scanTicksPerItem = 1; // Ticks a cashier needs to scan one item
+    public int checkoutTimeoutTicks = 500; // Longest a customer queues at a checkout before leaving the basket behind
+    public int maxBasketSize = 3; // Customers check out after collecting between 1 and this many items
+    public int loadWindowTicks = 100; // Length of the sliding window the store's load is measured over
+    public double busyArrivalsPerTick = 0.4; // Shopping trips started per tick, averaged over the load window, above which the store is busy
+    public double rushLoadFactor = 2.0; // Arrival rates above busyArrivalsPerTick times this count as a rush
+    public int maxBreakPostponementTicks = 200; // Longest an assistant will put off a due break during a rush
+    public boolean demandDrivenDeliveries = false; // Opt in to ordering from the supplier by demand instead of a fixed random delivery
+    public int supplierLeadTicks = 20; // Ticks between placing an order and it arriving
+    public int reorderReviewTicks = 10; // How often stock is reviewed against the reorder points
+    public int minOrderItems = 5; // Smallest order worth sending, unless less than this is needed
+    public double customerArrivalRate = 0.0; // New customers walking in per tick; 0 means only the customers started with the store
+    public int basketsPerVisit = 0; // Baskets a customer checks out before leaving; 0 means they shop until their patience runs out
+    public int customerPoolSize = 256; // Departed customers kept for reuse by new arrivals
+    public boolean sectionActors = false; // Run each section as a single-writer actor with a mailbox instead of a lock
+    public int sectionMailboxBatch = 64; // Most commands a section actor handles in one drain of its mailbox
+    public int eventBufferSize = 4096; // Store events buffered for each event bus subscriber
+    public long eventBlockMillis = 5; // Longest a blocking event subscriber may hold up the actor publishing to it
+    public String eventLogFile = null; // CSV file every store event is exported to, or null for none
+    public int sectionCapacity = 0; // Most items one section's shelf holds; 0 means no limit
+    public int lowStockWatermark = Section.LOW_STOCK_THRESHOLD; // A section at or below this many items is low on stock
+    public int highStockWatermark = 24; // A section at or above this many items is nearly full
+    public int stockingTimeoutTicks = 20; // Longest an assistant waits for room on a full shelf before taking the rest elsewhere
+    public int maxDeliveryBoxItems = 0; // Deliveries are held back while the delivery box has this many items; 0 means no limit
     
     public Config(
             int numberOfAssistants, 
@@ -39,8 +78,7 @@ public class Config {
             double customerPatienceMultiplier, 
             int minBreakInterval, 
             int maxBreakInterval, 
-            int breakDurationTicks,
-            int busyCustomerThreshold) {
+            int breakDurationTicks) {
         this.numberOfAssistants = numberOfAssistants;
         this.numberOfElectronicsSections = numberOfElectronicsSections;
         this.numberOfClothingSections = numberOfClothingSections;
@@ -60,8 +98,75 @@ public class Config {
         this.minBreakInterval = minBreakInterval;
         this.maxBreakInterval = maxBreakInterval;
         this.breakDurationTicks = breakDurationTicks;
-        this.busyCustomerThreshold = busyCustomerThreshold;
         
+    }
+
+    /**
+     * Copies another configuration, including the values changed through its setters,
+     * so that a run can modify its own Config without affecting the original.
+     *
+     * @param other The configuration to copy.
+     */
+    public Config(Config other) {
+        this(other.numberOfAssistants,
+             other.numberOfElectronicsSections,
+             other.numberOfClothingSections,
+             other.numberOfFurnitureSections,
+             other.numberOfToysSections,
+             other.numberOfSportingGoodsSections,
+             other.numberOfBooksSections,
+             other.customerPurchaseProbabilityElectronics,
+             other.customerPurchaseProbabilityClothing,
+             other.customerPurchaseProbabilityFurniture,
+             other.customerPurchaseProbabilityToys,
+             other.customerPurchaseProbabilitySportingGoods,
+             other.customerPurchaseProbabilityBooks,
+             other.deliveryFrequencyTicks,
+             other.maxItemsPerDelivery,
+             other.customerPatienceMultiplier,
+             other.minBreakInterval,
+             other.maxBreakInterval,
+             other.breakDurationTicks);
+        this.minAssistants = other.minAssistants;
+        this.maxAssistants = other.maxAssistants;
+        this.targetWaitTicks = other.targetWaitTicks;
+        this.staffingEvaluationTicks = other.staffingEvaluationTicks;
+        this.staffingCooldownTicks = other.staffingCooldownTicks;
+        this.staffingHysteresis = other.staffingHysteresis;
+        this.proactiveStocking = other.proactiveStocking;
+        this.demandSmoothing = other.demandSmoothing;
+        this.forecastHorizonTicks = other.forecastHorizonTicks;
+        this.ticksPerMinute = other.ticksPerMinute;
+        this.metricsMemoryBudgetBytes = other.metricsMemoryBudgetBytes;
+        this.metricsFile = other.metricsFile;
+        this.consoleLogging = other.consoleLogging;
+        this.numberOfCheckoutLanes = other.numberOfCheckoutLanes;
+        this.numberOfCashiers = other.numberOfCashiers;
+        this.cashierBatchSize = other.cashierBatchSize;
+        this.scanTicksPerItem = other.scanTicksPerItem;
+        this.checkoutTimeoutTicks = other.checkoutTimeoutTicks;
+        this.maxBasketSize = other.maxBasketSize;
+        this.loadWindowTicks = other.loadWindowTicks;
+        this.busyArrivalsPerTick = other.busyArrivalsPerTick;
+        this.rushLoadFactor = other.rushLoadFactor;
+        this.maxBreakPostponementTicks = other.maxBreakPostponementTicks;
+        this.demandDrivenDeliveries = other.demandDrivenDeliveries;
+        this.supplierLeadTicks = other.supplierLeadTicks;
+        this.reorderReviewTicks = other.reorderReviewTicks;
+        this.minOrderItems = other.minOrderItems;
+        this.customerArrivalRate = other.customerArrivalRate;
+        this.basketsPerVisit = other.basketsPerVisit;
+        this.customerPoolSize = other.customerPoolSize;
+        this.sectionActors = other.sectionActors;
+        this.sectionMailboxBatch = other.sectionMailboxBatch;
+        this.eventBufferSize = other.eventBufferSize;
+        this.eventBlockMillis = other.eventBlockMillis;
+        this.eventLogFile = other.eventLogFile;
+        this.sectionCapacity = other.sectionCapacity;
+        this.lowStockWatermark = other.lowStockWatermark;
+        this.highStockWatermark = other.highStockWatermark;
+        this.stockingTimeoutTicks = other.stockingTimeoutTicks;
+        this.maxDeliveryBoxItems = other.maxDeliveryBoxItems;
     }
         // Add setters for parameters you want to be able to modify dynamically
         public void setNumberOfAssistants(int numberOfAssistants) {
@@ -71,4 +176,106 @@ public class Config {
         public void setDeliveryFrequencyTicks(int deliveryFrequencyTicks) {
             this.deliveryFrequencyTicks = deliveryFrequencyTicks;
         }
+
+        public void setCustomerPatienceMultiplier(double customerPatienceMultiplier) {
+            this.customerPatienceMultiplier = customerPatienceMultiplier;
+        }
+
+        public void setStaffingBounds(int minAssistants, int maxAssistants) {
+            this.minAssistants = minAssistants;
+            this.maxAssistants = maxAssistants;
+        }
+
+        public void setTargetWaitTicks(int targetWaitTicks) {
+            this.targetWaitTicks = targetWaitTicks;
+        }
+
+        public void setStaffingEvaluationTicks(int staffingEvaluationTicks) {
+            this.staffingEvaluationTicks = staffingEvaluationTicks;
+        }
+
+        public void setStaffingCooldownTicks(int staffingCooldownTicks) {
+            this.staffingCooldownTicks = staffingCooldownTicks;
+        }
+
+        public void setStaffingHysteresis(double staffingHysteresis) {
+            this.staffingHysteresis = staffingHysteresis;
+        }
+
+        public void setProactiveStocking(boolean proactiveStocking) {
+            this.proactiveStocking = proactiveStocking;
+        }
+
+        public void setDemandSmoothing(double demandSmoothing) {
+            this.demandSmoothing = demandSmoothing;
+        }
+
+        public void setForecastHorizonTicks(int forecastHorizonTicks) {
+            this.forecastHorizonTicks = forecastHorizonTicks;
+        }
+
+        public void setCheckout(int numberOfCheckoutLanes, int numberOfCashiers, int cashierBatchSize, int scanTicksPerItem) {
+            this.numberOfCheckoutLanes = numberOfCheckoutLanes;
+            this.numberOfCashiers = numberOfCashiers;
+            this.cashierBatchSize = cashierBatchSize;
+            this.scanTicksPerItem = scanTicksPerItem;
+        }
+
+        public void setCheckoutTimeoutTicks(int checkoutTimeoutTicks) {
+            this.checkoutTimeoutTicks = checkoutTimeoutTicks;
+        }
+
+        public void setConsoleLogging(boolean consoleLogging) {
+            this.consoleLogging = consoleLogging;
+        }
+
+        public void setMetricsHistory(int ticksPerMinute, long metricsMemoryBudgetBytes, String metricsFile) {
+            this.ticksPerMinute = ticksPerMinute;
+            this.metricsMemoryBudgetBytes = metricsMemoryBudgetBytes;
+            this.metricsFile = metricsFile;
+        }
+
+        public void setLoadWindow(int loadWindowTicks, double busyArrivalsPerTick, double rushLoadFactor) {
+            this.loadWindowTicks = loadWindowTicks;
+            this.busyArrivalsPerTick = busyArrivalsPerTick;
+            this.rushLoadFactor = rushLoadFactor;
+        }
+
+        public void setMaxBreakPostponementTicks(int maxBreakPostponementTicks) {
+            this.maxBreakPostponementTicks = maxBreakPostponementTicks;
+        }
+
+        public void setCustomerArrivals(double customerArrivalRate, int basketsPerVisit, int customerPoolSize) {
+            this.customerArrivalRate = customerArrivalRate;
+            this.basketsPerVisit = basketsPerVisit;
+            this.customerPoolSize = customerPoolSize;
+        }
+
+        public void setSectionActors(boolean sectionActors, int sectionMailboxBatch) {
+            this.sectionActors = sectionActors;
+            this.sectionMailboxBatch = sectionMailboxBatch;
+        }
+
+        public void setSectionCapacity(int sectionCapacity, int lowStockWatermark, int highStockWatermark, int stockingTimeoutTicks) {
+            this.sectionCapacity = sectionCapacity;
+            this.lowStockWatermark = lowStockWatermark;
+            this.highStockWatermark = highStockWatermark;
+            this.stockingTimeoutTicks = stockingTimeoutTicks;
+        }
+
+        public void setMaxDeliveryBoxItems(int maxDeliveryBoxItems) {
+            this.maxDeliveryBoxItems = maxDeliveryBoxItems;
+        }
+
+        public void setEventBus(int eventBufferSize, long eventBlockMillis, String eventLogFile) {
+            this.eventBufferSize = eventBufferSize;
+            this.eventBlockMillis = eventBlockMillis;
+            this.eventLogFile = eventLogFile;
+        }
+
+        public void setReplenishment(boolean demandDrivenDeliveries, int supplierLeadTicks, int reorderReviewTicks) {
+            this.demandDrivenDeliveries = demandDrivenDeliveries;
+            this.supplierLeadTicks = supplierLeadTicks;
+            this.reorderReviewTicks = reorderReviewTicks;
+        }
 }
\ No newline at end of file
@@ -1,15 +1,21 @@
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * This thread represents a customer interacting with the store, that is, purchasing items, leaving the store after waiting too long and so on.
  * Customers choose what they want to buy at random sections, and if the item isn't accessible right away, they have to wait a while.
+ * When a customer leaves, the store keeps the object and hands it to a later arrival through reset, so it is not reallocated.
  */
 public class Customer implements Runnable {
     private final ThriftStore store; // Reference to the thrift store
-    private final int id; // Unique identifier for the customer
+    private int id; // Unique identifier for the customer
     private final Random random = new Random(); // Using a random generator, simulate consumer behaviour
-    private final int MAX_WAIT_TICKS; // Maximum ticks a customer will wait for an item
+    private int maxWaitTicks; // Maximum ticks a customer will wait for an item
     private int totalWaitTime = 0; // Total wait time accumulated by the customer
+    private int itemsInBasket = 0; // Items picked up but not paid for yet
+    private int basketsCheckedOut = 0; // Baskets paid for during this visit
+    private ThriftStore.TrackedActor visit; // The store's tracked handle for this object, reused to launch every visit
 
     /**
      * Constructs a Customer instance.
@@ -20,8 +26,37 @@ public class Customer implements Runnable {
      */
     public Customer(ThriftStore store, int id, double patienceMultiplier) {
         this.store = store;
+        reset(id, patienceMultiplier);
+    }
+
+    /**
+     * Prepares this customer object for a new arrival, clearing everything left over from its previous visit.
+     * Only called by the store on a pooled customer, which the store pools only once its run method has returned.
+     *
+     * @param id                 The identifier of the arriving customer.
+     * @param patienceMultiplier A multiplier influencing the customer's tolerance for waiting times.
+     */
+    void reset(int id, double patienceMultiplier) {
         this.id = id;
-        this.MAX_WAIT_TICKS = (int)(100 * patienceMultiplier); // Calculate max wait ticks based on the patience multiplier
+        this.maxWaitTicks = (int)(100 * patienceMultiplier); // Calculate max wait ticks based on the patience multiplier
+        this.totalWaitTime = 0;
+        this.itemsInBasket = 0;
+        this.basketsCheckedOut = 0;
+    }
+
+    //getter for the customer id
+    public int getId() {
+        return id;
+    }
+
+    //getter for the store's handle that launches this customer's visits, or null before the first one
+    ThriftStore.TrackedActor getVisit() {
+        return visit;
+    }
+
+    //setter for the store's handle that launches this customer's visits; kept across resets
+    void setVisit(ThriftStore.TrackedActor visit) {
+        this.visit = visit;
     }
 
     /**
@@ -29,32 +64,53 @@ public class Customer implements Runnable {
      */
     @Override
     public void run() {
+        int basketTarget = chooseBasketTarget(); // Items to collect before heading to the checkout
+        store.recordArrival();
         try {
             while (!Thread.currentThread().isInterrupted()) {
                 String sectionToBuyFrom = selectRandomSection(); // Select a random section to buy from
-                boolean purchased = false; // Track to see if the purchase was successful
-                int waitedTicksForThisPurchase = 0; // Ticks waited for the current purchase attempt
-    
-                while (!purchased) {
-                    if (store.sectionIsBeingStocked(sectionToBuyFrom) || !store.sectionHasItems(sectionToBuyFrom)) {
-                        // Check if the customer needs to leave due to excessive waiting
-                        if (waitedTicksForThisPurchase >= MAX_WAIT_TICKS) {
-                            logAndGUIUpdate(String.format("<Tick %d> [Thread %d] Customer %d leaves after waiting too long in %s section.",
-                                store.getCurrentTick(), Thread.currentThread().getId(), id, sectionToBuyFrom));
-                            store.recordCustomerWaitTime(waitedTicksForThisPurchase); // Record the wait time before leaving
-                            return; // Leave the store
-                        }
-                        waitedTicksForThisPurchase++; // Increment wait time
-                        Thread.sleep(ThriftStore.TICK_TIME_SIZE); // Simulate waiting
-                    } else {
-                        // Make a purchase and update wait time and log
-                        store.buyItemFromSection(sectionToBuyFrom);
-                        purchased = true; // Flag it as true if purchase was successful
-                        totalWaitTime += waitedTicksForThisPurchase; // Update total wait time by the waited ticks for this current purchase
-                        logAndGUIUpdate(String.format("<Tick %d> [Thread %d] Customer %d successfully purchased from %s section after waiting for %d ticks.",
-                                store.getCurrentTick(), Thread.currentThread().getId(), id, sectionToBuyFrom, waitedTicksForThisPurchase));
-                        store.recordCustomerWaitTime(waitedTicksForThisPurchase); // Record the wait time after successful purchase
+                long waitStart = System.nanoTime();
+                SimulationEvents.PurchaseAttempt attemptEvent = new SimulationEvents.PurchaseAttempt();
+                attemptEvent.begin();
+
+                // Join the section's waitlist; the section wakes us when an item is ours or our patience runs out
+                boolean purchased = store.getConfig().sectionActors
+                        ? awaitItem(store.buyItemFromSectionAsync(sectionToBuyFrom, maxWaitTicks))
+                        : store.buyItemFromSection(sectionToBuyFrom, maxWaitTicks);
+                int waitedTicksForThisPurchase = store.ticksSince(waitStart); // Ticks waited for the current purchase attempt
+
+                if (!purchased) {
+                    attemptEvent.abandon();
+                    attemptEvent.record(store.getCurrentTick(), sectionToBuyFrom, "Customer", id, waitedTicksForThisPurchase);
+                    store.publishEvent(StoreEvent.Type.ABANDONMENT, "Customer", id, sectionToBuyFrom, waitedTicksForThisPurchase, null);
+                    logAndGUIUpdate(String.format("<Tick %d> [Thread %d] Customer %d leaves after waiting too long in %s section.",
+                        store.getCurrentTick(), Thread.currentThread().getId(), id, sectionToBuyFrom));
+                    store.recordCustomerWaitTime(waitedTicksForThisPurchase); // Record the wait time before leaving
+                    store.recordAbandonment();
+                    store.checkOut(id, itemsInBasket); // Pay for whatever is already in the basket on the way out
+                    itemsInBasket = 0;
+                    return; // Leave the store
+                }
+                attemptEvent.record(store.getCurrentTick(), sectionToBuyFrom, "Customer", id, waitedTicksForThisPurchase);
+                store.publishEvent(StoreEvent.Type.PURCHASE, "Customer", id, sectionToBuyFrom, waitedTicksForThisPurchase, null);
+                totalWaitTime += waitedTicksForThisPurchase; // Update total wait time by the waited ticks for this current purchase
+                logAndGUIUpdate(String.format("<Tick %d> [Thread %d] Customer %d successfully purchased from %s section after waiting for %d ticks.",
+                        store.getCurrentTick(), Thread.currentThread().getId(), id, sectionToBuyFrom, waitedTicksForThisPurchase));
+                store.recordCustomerWaitTime(waitedTicksForThisPurchase); // Record the wait time after successful purchase
+                store.recordPurchase();
+
+                // Once the basket is full enough, queue at a checkout lane until a cashier has scanned it
+                itemsInBasket++;
+                if (itemsInBasket >= basketTarget) {
+                    store.checkOut(id, itemsInBasket);
+                    itemsInBasket = 0;
+                    basketsCheckedOut++;
+                    int basketsPerVisit = store.getConfig().basketsPerVisit;
+                    if (basketsPerVisit > 0 && basketsCheckedOut >= basketsPerVisit) {
+                        return; // Done shopping for today
                     }
+                    basketTarget = chooseBasketTarget();
+                    store.recordArrival(); // Each new basket is a new trip round the store
                 }
             }
         } catch (InterruptedException e) {
@@ -66,6 +122,28 @@ public class Customer implements Runnable {
         }
     }
 
+    /**
+     * Waits for a section actor to answer a purchase. If the customer is interrupted first they withdraw from
+     * the waitlist, unless the item was already handed over, in which case they keep it.
+     *
+     * @param reply The section's answer, as returned by buyItemFromSectionAsync.
+     * @return true if the customer got the item.
+     * @throws InterruptedException if the customer is interrupted before an item is handed over.
+     */
+    private boolean awaitItem(CompletableFuture<Boolean> reply) throws InterruptedException {
+        try {
+            return reply.get();
+        } catch (InterruptedException e) {
+            if (reply.complete(false)) {
+                throw e;
+            }
+            Thread.currentThread().interrupt();
+            return reply.join();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
     /**
      * Selects a random section from the thriftstore to purchase from.
      *
@@ -76,6 +154,11 @@ public class Customer implements Runnable {
         return sections[random.nextInt(sections.length)]; // Return a randomly selected section
     }
 
+    // Picks how many items the customer collects before checking out
+    private int chooseBasketTarget() {
+        return 1 + random.nextInt(Math.max(1, store.getConfig().maxBasketSize));
+    }
+
     /**
      * Creates the impression of a delay, signifying the amount of time a buyer needs to peruse and choose their course of action.
      *
@@ -83,7 +166,7 @@ public class Customer implements Runnable {
      */
     private void simulateShoppingDelay() throws InterruptedException {
         int delay = random.nextInt(10, 50); // Delay for ten to fifty ticks is simulated.
-        Thread.sleep(delay * ThriftStore.TICK_TIME_SIZE); // Apply the simulated delay
+        store.sleepTicks(delay); // Apply the simulated delay
     }
 
     /**
@@ -92,7 +175,6 @@ public class Customer implements Runnable {
      * @param message The message to be logged and displayed on the GUI.
      */
     private void logAndGUIUpdate(String message) {
-        System.out.println(message); // Log the message to the terminal
-        store.getGui().updateCustomerInformation(message); // Update the GUI with the customer data
+        store.log("Customer", id, message); // The console and the GUI pick it up from the store's event bus
     }
 }
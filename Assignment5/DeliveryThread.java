@@ -4,7 +4,8 @@ import java.util.Random;
 
 /**
 * Shows a delivery thread that acts like deliveries to the thrift store every so often. 
-* Deliveries include a mix of random things spread out in different parts of the store.
+* With demand driven deliveries the store's ReplenishmentEngine decides what arrives and when;
+* otherwise deliveries include a mix of random things spread out in different parts of the store.
  */
 
 public class DeliveryThread implements Runnable {
@@ -14,6 +15,7 @@ public class DeliveryThread implements Runnable {
 
     public DeliveryThread(ThriftStore store) {
         this.store = store; // Delivery Thread Constructor
+        this.deliveryCounter = store.getTicksSinceLastDelivery(); // a forked store carries on the live store's schedule
     }
 
     @Override
@@ -21,7 +23,17 @@ public class DeliveryThread implements Runnable {
         try {
             // Always look out for delays and keep track of deliveries.
             while (!Thread.currentThread().isInterrupted()) {
-                if (isTimeForNextDelivery()) { // Check to see if it's time to make a new supply
+                if (store.getConfig().demandDrivenDeliveries) {
+                    deliverArrivedOrders();
+                    waitForNextTick();
+                } else if (isTimeForNextDelivery() && store.isDeliveryBoxFull()) {
+                    // The assistants cannot keep up, so the delivery waits at the door until the box has room
+                    store.recordDeliveryHeldBack();
+                    waitForNextTick();
+                } else if (isTimeForNextDelivery() && store.takeSkipNextDelivery()) {
+                    store.log(String.format("<Tick %d> The scheduled delivery was skipped.", store.getCurrentTick()));
+                    resetDeliveryCounter();
+                } else if (isTimeForNextDelivery()) { // Check to see if it's time to make a new supply
                     Map<String, Integer> delivery = simulateDeliveryWithRandomDistribution();
                     store.processDelivery(delivery); // Perform the delivery simulation
                     logDelivery(delivery); // Mark the shipment details for tracking purposes
@@ -36,6 +48,20 @@ public class DeliveryThread implements Runnable {
         }
     }
 
+    // Hands over whatever the supplier's orders have brought by now
+    private void deliverArrivedOrders() {
+        Map<String, Integer> delivery = store.getReplenishmentEngine().poll(store.getCurrentTick(), store.getDeliveryBoxRoom());
+        if (delivery.isEmpty()) {
+            return;
+        }
+        if (store.takeSkipNextDelivery()) {
+            store.log(String.format("<Tick %d> The delivery was skipped: %s", store.getCurrentTick(), delivery));
+            return;
+        }
+        store.processDelivery(delivery);
+        logDelivery(delivery);
+    }
+
     // Verifies that the present tick counter satisfies the delivery frequency criterion
     private boolean isTimeForNextDelivery() {
         return deliveryCounter >= store.getConfig().deliveryFrequencyTicks;
@@ -49,14 +75,14 @@ public class DeliveryThread implements Runnable {
     // Activates the next tick by halting the thread and incrementing the counter
     private void waitForNextTick() throws InterruptedException {
         deliveryCounter++;
-        Thread.sleep(ThriftStore.TICK_TIME_SIZE);
+        store.sleepTicks(1);
     }
 
     // Invents a scenario where different types of deliveries are distributed at random
     private Map<String, Integer> simulateDeliveryWithRandomDistribution() {
         Map<String, Integer> delivery = new HashMap<>();
         String[] categories = {"electronics", "clothing", "toys", "sporting goods", "furniture", "books"};
-        int totalItems = 10; // The sum total of the things that will be distributed in this shipment
+        int totalItems = store.getConfig().maxItemsPerDelivery; // The sum total of the things that will be distributed in this shipment
 
         // Split the total objects up into various groups at random
         while (totalItems > 0) {
@@ -71,6 +97,6 @@ public class DeliveryThread implements Runnable {
 
     // Records information about a completed delivery
     private void logDelivery(Map<String, Integer> delivery) {
-        System.out.println("Delivery processed: " + delivery);
+        store.log("Delivery processed: " + delivery);
     }
 }
\ No newline at end of file
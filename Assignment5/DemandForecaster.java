@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps an exponentially weighted moving average (EWMA) of the sales rate of every section
+ * and predicts how many ticks are left before each section reaches its low-stock threshold.
+ * The store uses these predictions to decide which delivered items an assistant should shelve first
+ * and to call idle assistants back before a section actually runs low.
+ * It also averages the purchase requests of every section, including those that found the shelf empty,
+ * which the ReplenishmentEngine orders from, since sales alone hide the demand for a sold-out section.
+ */
+public class DemandForecaster {
+    private final ThriftStore store;
+    private final Map<String, AtomicInteger> salesThisTick = new ConcurrentHashMap<>(); // Purchases per section since the last tick
+    private final Map<String, Double> salesRate = new ConcurrentHashMap<>(); // Smoothed items sold per tick, per section
+    private final Map<String, AtomicInteger> requestsThisTick = new ConcurrentHashMap<>(); // Purchase requests per section since the last tick
+    private final Map<String, Double> requestRate = new ConcurrentHashMap<>(); // Smoothed purchase requests per tick, per section
+
+    // DemandForecaster constructor
+    public DemandForecaster(ThriftStore store) {
+        this.store = store;
+    }
+
+    // Records one purchase event from a section
+    public void recordSale(String sectionName) {
+        salesThisTick.computeIfAbsent(sectionName, name -> new AtomicInteger()).incrementAndGet();
+    }
+
+    // Records a customer asking for an item from a section, whether or not one is on the shelf
+    public void recordRequest(String sectionName) {
+        requestsThisTick.computeIfAbsent(sectionName, name -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * Folds the purchases and purchase requests of the tick that has just ended into each section's moving averages.
+     * Called once per tick by the store.
+     */
+    public void onTick() {
+        double alpha = store.getConfig().demandSmoothing;
+        for (String sectionName : store.getSectionNames()) {
+            AtomicInteger counter = salesThisTick.get(sectionName);
+            int sold = counter == null ? 0 : counter.getAndSet(0);
+            salesRate.merge(sectionName, (double) sold, (previous, latest) -> alpha * latest + (1 - alpha) * previous);
+            AtomicInteger requestCounter = requestsThisTick.get(sectionName);
+            int requested = requestCounter == null ? 0 : requestCounter.getAndSet(0);
+            requestRate.merge(sectionName, (double) requested, (previous, latest) -> alpha * latest + (1 - alpha) * previous);
+        }
+    }
+
+    // Copies of the smoothed rates, for a StoreSnapshot
+    public Map<String, Double> getSalesRates() {
+        return new HashMap<>(salesRate);
+    }
+
+    public Map<String, Double> getRequestRates() {
+        return new HashMap<>(requestRate);
+    }
+
+    // Starts a forked store's forecaster from the rates the live store had when it was snapshotted
+    void restore(Map<String, Double> salesRates, Map<String, Double> requestRates) {
+        salesRate.putAll(salesRates);
+        requestRate.putAll(requestRates);
+    }
+
+    //getter for the smoothed sales rate of a section, in items per tick
+    public double getSalesRate(String sectionName) {
+        return salesRate.getOrDefault(sectionName, 0.0);
+    }
+
+    // Smoothed purchase requests per tick across a delivery category's sections
+    public double getCategoryDemandRate(String category) {
+        double rate = 0;
+        for (String sectionName : store.getSectionNamesInCategory(category)) {
+            rate += requestRate.getOrDefault(sectionName, 0.0);
+        }
+        return rate;
+    }
+
+    /**
+     * Predicts how long a section will last before it reaches the low-stock threshold at its current sales rate.
+     *
+     * @param sectionName The section to predict for.
+     * @return Ticks until the section is low on stock, 0 if it already is, or Double.POSITIVE_INFINITY if nothing is selling.
+     */
+    public double ticksUntilLowStock(String sectionName) {
+        int headroom = store.getSectionItemCount(sectionName) - store.getConfig().lowStockWatermark;
+        if (headroom <= 0) {
+            return 0;
+        }
+        double rate = getSalesRate(sectionName);
+        return rate <= 0 ? Double.POSITIVE_INFINITY : headroom / rate;
+    }
+
+    // Predicted ticks until the first section of a delivery category runs low
+    public double ticksUntilCategoryLowStock(String category) {
+        double soonest = Double.POSITIVE_INFINITY;
+        for (String sectionName : store.getSectionNamesInCategory(category)) {
+            soonest = Math.min(soonest, ticksUntilLowStock(sectionName));
+        }
+        return soonest;
+    }
+
+    // Whether a category will run low before an assistant dispatched now could restock it
+    public boolean isUrgent(String category) {
+        return ticksUntilCategoryLowStock(category) <= store.getConfig().forecastHorizonTicks;
+    }
+
+    // Orders delivery categories so that the one predicted to run low soonest comes first
+    public List<String> byUrgency(Collection<String> categories) {
+        List<String> ordered = new ArrayList<>(categories);
+        ordered.sort(Comparator.comparingDouble(this::ticksUntilCategoryLowStock));
+        return ordered;
+    }
+}
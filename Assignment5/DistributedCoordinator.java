@@ -0,0 +1,229 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the store with its sections partitioned across several local PartitionServer processes.
+ * The coordinator process keeps the clock, the delivery box, the assistants and the customers;
+ * every section operation goes to the partition that owns the section over a loopback socket.
+ * Sections are dealt out to the partitions round-robin.
+ *
+ * Usage:
+ *   java DistributedCoordinator simulate &lt;partitions&gt; &lt;customers&gt; &lt;ticks&gt;
+ *   java DistributedCoordinator bench &lt;max partitions&gt; &lt;client threads&gt; &lt;seconds per step&gt;
+ */
+public class DistributedCoordinator implements AutoCloseable {
+    private static final long START_TIMEOUT_MILLIS = 10_000; // Longest wait for a partition to report READY
+    private final List<Process> processes = new ArrayList<>();
+    private final List<PartitionClient> clients = new ArrayList<>();
+    private final Map<String, RemoteSection> sections = new HashMap<>();
+
+    /**
+     * Starts one process per partition and connects to each of them.
+     *
+     * @param sectionNames The sections to distribute.
+     * @param partitions   The number of partition processes.
+     * @throws IOException if a partition cannot be started or reached.
+     */
+    public DistributedCoordinator(List<String> sectionNames, int partitions) throws IOException {
+        List<List<String>> owned = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            owned.add(new ArrayList<>());
+        }
+        for (int i = 0; i < sectionNames.size(); i++) {
+            owned.get(i % partitions).add(sectionNames.get(i));
+        }
+        try {
+            for (List<String> partitionSections : owned) {
+                PartitionClient client = new PartitionClient(startPartition(partitionSections));
+                clients.add(client);
+                for (int index = 0; index < partitionSections.size(); index++) {
+                    String name = partitionSections.get(index);
+                    sections.put(name, new RemoteSection(name, client, index));
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // Launches a partition JVM with the same classpath and waits for it to print the port it listens on
+    private int startPartition(List<String> sectionNames) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("PartitionServer");
+        command.add("0");
+        command.addAll(sectionNames);
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        processes.add(process);
+
+        CompletableFuture<Integer> port = CompletableFuture.supplyAsync(() -> {
+            try {
+                BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                String line;
+                while ((line = output.readLine()) != null) {
+                    if (line.startsWith("READY ")) {
+                        return Integer.parseInt(line.substring(6).trim());
+                    }
+                }
+                throw new IllegalStateException("Partition exited before it was ready");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            return port.get(START_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new IOException("Partition for " + sectionNames + " did not start", e);
+        }
+    }
+
+    // Builds a store whose sections are proxies for the partitions' sections
+    public ThriftStore createStore(Config config) {
+        return new ThriftStore(config, false, (name, initialItems) -> {
+            RemoteSection section = sections.get(name);
+            if (section == null) {
+                throw new IllegalArgumentException("No partition owns section " + name);
+            }
+            return section; // the partition seeded its own initial items
+        });
+    }
+
+    // Collects the items sold and left on the shelf from every partition
+    public String aggregateReport() {
+        StringBuilder report = new StringBuilder("Partition report <section: sold, on shelf>:\n");
+        for (int p = 0; p < clients.size(); p++) {
+            report.append(String.format("Partition %d (%d requests):", p + 1, clients.get(p).getRequestsSent()));
+            for (RemoteSection section : sectionsOf(p)) {
+                report.append(String.format(" %s: %d, %d;", section.getName(), section.getItemsSold(), section.getItemCount()));
+            }
+            report.append('\n');
+        }
+        return report.toString();
+    }
+
+    private List<RemoteSection> sectionsOf(int partition) {
+        List<RemoteSection> owned = new ArrayList<>();
+        for (RemoteSection section : sections.values()) {
+            if (section.belongsTo(clients.get(partition))) {
+                owned.add(section);
+            }
+        }
+        return owned;
+    }
+
+    //getter for the section proxies
+    public Map<String, RemoteSection> getSections() {
+        return sections;
+    }
+
+    // Asks every partition to exit and waits for the processes to go
+    @Override
+    public void close() {
+        for (PartitionClient client : clients) {
+            try {
+                client.send(SectionProtocol.SHUTDOWN, -1, 0).get(1, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                // the process is destroyed below if it did not take the hint
+            }
+            try {
+                client.close();
+            } catch (IOException e) {
+                // nothing more to do for a connection that is already broken
+            }
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Runs the distributed store or the partition scaling benchmark.
+     *
+     * @param args See the class comment.
+     * @throws Exception if the partitions cannot be started or the run is interrupted.
+     */
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "simulate";
+        if (mode.equals("bench")) {
+            int maxPartitions = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+            int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+            for (int partitions = 1; partitions <= maxPartitions; partitions++) {
+                bench(partitions, threads, seconds);
+            }
+            return;
+        }
+        int partitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int customers = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int ticks = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+        Config config = new Config(3, 2, 2, 2, 2, 2, 2, 0.1, 0.2, 0.15, 0.25, 0.05, 0.2, 100, 10, 1.5, 200, 300, 150);
+        config.setConsoleLogging(false);
+
+        try (DistributedCoordinator coordinator = new DistributedCoordinator(ThriftStore.sectionNamesFor(config), partitions);
+             SimulationRunner runner = new SimulationRunner()) {
+            ThriftStore store = coordinator.createStore(config);
+            store.setTickTimeMillis(1);
+            store.setActorExecutor(runner.getWorkers());
+            long start = System.nanoTime();
+            RunResult result = runner.drive(store, ticks, customers);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d partitions, %d customers, %d ticks in %.2fs: %s%n", partitions, customers, ticks, seconds, result);
+            System.out.print(coordinator.aggregateReport());
+        }
+    }
+
+    // Measures section operations per second against a given number of partitions
+    private static void bench(int partitions, int threads, int seconds) throws Exception {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 8 * partitions; i++) {
+            names.add("bench " + i);
+        }
+        try (DistributedCoordinator coordinator = new DistributedCoordinator(names, partitions)) {
+            List<RemoteSection> targets = new ArrayList<>(coordinator.getSections().values());
+            AtomicLong operations = new AtomicLong();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long done = 0;
+                    while (System.nanoTime() < deadline) {
+                        RemoteSection section = targets.get(random.nextInt(targets.size()));
+                        section.addItemFromSection(1);
+                        section.tryRemoveItem();
+                        done += 2;
+                    }
+                    operations.addAndGet(done);
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            System.out.printf("%d partition(s), %d client threads: %.0f section operations/s%n",
+                    partitions, threads, operations.get() / (double) seconds);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Flow;
+
+/**
+ * Writes every store event it receives to a CSV file, one line per event, from the event bus's delivery
+ * thread rather than the actors'. It asks for events a batch at a time and flushes after each batch.
+ * It is subscribed with the DROP policy, so lines lost to a slow disk are counted and reported when the log closes.
+ */
+public class EventFileExporter implements Flow.Subscriber<StoreEvent> {
+    private static final int BATCH = 256; // Events requested, and written between flushes
+    private final Path file;
+    private BufferedWriter writer;
+    private Flow.Subscription subscription;
+    private int received = 0; // Events written since the last request
+
+    // EventFileExporter constructor
+    public EventFileExporter(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        try {
+            writer = Files.newBufferedWriter(file);
+            writer.write("type,tick,actor,actor id,section,value,message");
+            writer.newLine();
+        } catch (IOException e) {
+            System.err.println("Could not open the event log " + file + ": " + e.getMessage());
+            subscription.cancel();
+            return;
+        }
+        subscription.request(BATCH);
+    }
+
+    @Override
+    public void onNext(StoreEvent event) {
+        try {
+            writer.write(event.toCsv());
+            writer.newLine();
+            if (++received == BATCH) {
+                received = 0;
+                writer.flush();
+                subscription.request(BATCH);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write to the event log " + file + ": " + e.getMessage());
+            subscription.cancel();
+            closeQuietly();
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        System.err.println("Event log " + file + " stopped: " + error);
+        closeQuietly();
+    }
+
+    @Override
+    public void onComplete() {
+        if (subscription instanceof StoreEventBus.CountedSubscription) {
+            long dropped = ((StoreEventBus.CountedSubscription) subscription).getDropped();
+            if (dropped > 0) {
+                System.err.println("Event log " + file + " is missing " + dropped + " events the writer could not keep up with");
+            }
+        }
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not close the event log " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding-window counters of what has happened in the store over the last few ticks:
+ * customer arrivals, purchases, abandonments and restocks.
+ * Each event type has a ring of LongAdders, one per tick, so customers and assistants can count
+ * events without taking a lock or contending on a single counter. The tick thread clears the slot
+ * that is about to come into use, one tick ahead, so writers never race with a reset.
+ */
+public class LoadMonitor {
+    /**
+     * How busy the store is, from the rate customers have been arriving over the window.
+     */
+    public enum Level {
+        QUIET, // Nobody has arrived or bought anything in the window
+        NORMAL,
+        BUSY, // More arrivals per tick than busyArrivalsPerTick
+        RUSH // More than rushLoadFactor times busyArrivalsPerTick
+    }
+
+    public enum Event {
+        ARRIVAL, PURCHASE, ABANDONMENT, RESTOCK
+    }
+
+    private final ThriftStore store;
+    private final int windowTicks;
+    private final LongAdder[][] slots; // [event][tick % (windowTicks + 1)]
+
+    // LoadMonitor constructor
+    public LoadMonitor(ThriftStore store, int windowTicks) {
+        this.store = store;
+        this.windowTicks = Math.max(1, windowTicks);
+        // One spare slot is kept so the next tick's slot can be cleared while the window is still being counted
+        this.slots = new LongAdder[Event.values().length][this.windowTicks + 1];
+        for (LongAdder[] ring : slots) {
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = new LongAdder();
+            }
+        }
+    }
+
+    // Counts one event at the current tick
+    public void record(Event event) {
+        slots[event.ordinal()][slotOf(store.getCurrentTick())].increment();
+    }
+
+    /**
+     * Called by the store once per tick, after the tick count has moved on.
+     * Clears the slot the next tick will use; it last held events from windowTicks + 1 ticks ago.
+     *
+     * @param tick The tick that has just started.
+     */
+    public void onTick(int tick) {
+        int next = slotOf(tick + 1);
+        for (LongAdder[] ring : slots) {
+            ring[next].reset();
+        }
+    }
+
+    // Events of one type over the last windowTicks ticks
+    public long countInWindow(Event event) {
+        long count = 0;
+        for (LongAdder slot : slots[event.ordinal()]) {
+            count += slot.sum();
+        }
+        return count;
+    }
+
+    // Average arrivals per tick over the window; a window that is not full yet counts its missing ticks as empty
+    public double getArrivalsPerTick() {
+        return (double) countInWindow(Event.ARRIVAL) / windowTicks;
+    }
+
+    // Works out the load level from the arrival rate and purchases over the window
+    public Level getLevel() {
+        Config config = store.getConfig();
+        double arrivalsPerTick = getArrivalsPerTick();
+        if (arrivalsPerTick == 0 && countInWindow(Event.PURCHASE) == 0) {
+            return Level.QUIET;
+        }
+        if (arrivalsPerTick > config.busyArrivalsPerTick * config.rushLoadFactor) {
+            return Level.RUSH;
+        }
+        if (arrivalsPerTick > config.busyArrivalsPerTick) {
+            return Level.BUSY;
+        }
+        return Level.NORMAL;
+    }
+
+    //getter for the window length, in ticks
+    public int getWindowTicks() {
+        return windowTicks;
+    }
+
+    // One line summary for the end of day report
+    public String describe() {
+        return String.format("%s (last %d ticks: %d arrivals, %.2f per tick, %d purchases, %d abandonments, %d restocks)",
+                getLevel(), windowTicks, countInWindow(Event.ARRIVAL), getArrivalsPerTick(), countInWindow(Event.PURCHASE),
+                countInWindow(Event.ABANDONMENT), countInWindow(Event.RESTOCK));
+    }
+
+    private int slotOf(int tick) {
+        return Math.floorMod(tick, windowTicks + 1);
+    }
+}
@@ -0,0 +1,359 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Embedded time-series store for the simulation's metrics.
+ * Every tick one value per metric is recorded into three tiers of fixed-size primitive rings:
+ * single ticks, minutes and days. Each tier keeps the sum, minimum and maximum of every bucket,
+ * so older data is automatically downsampled as the finer rings wrap around.
+ * All arrays are sized up front from a memory budget, so memory use stays the same however long the run lasts.
+ */
+public class MetricsRecorder {
+    private static final int FILE_MAGIC = 0x54534D31; // "TSM1", marks a saved metrics file
+    private static final int BYTES_PER_BUCKET_AND_METRIC = 3 * Float.BYTES; // sum, min and max
+    private static final int BYTES_PER_BUCKET = Integer.BYTES + Long.BYTES; // sample count and bucket index
+    private static final double[] TIER_SHARE = {0.4, 0.4, 0.2}; // Share of the memory budget per tier
+
+    private final List<String> metricNames;
+    private final Tier[] tiers; // tick, minute and day tiers, finest first
+
+    /**
+     * Creates a recorder for a fixed set of metrics.
+     *
+     * @param metricNames       The metrics recorded each tick, in the order their values are passed to record.
+     * @param ticksPerMinute    The width of a minute bucket, in ticks.
+     * @param memoryBudgetBytes The memory the rings may use between them.
+     * @throws IllegalArgumentException if the budget asks for a ring too large to hold in an array.
+     */
+    public MetricsRecorder(List<String> metricNames, int ticksPerMinute, long memoryBudgetBytes) {
+        this.metricNames = Collections.unmodifiableList(new ArrayList<>(metricNames));
+        int[] resolutions = {1, ticksPerMinute, ThriftStore.TICKS_PER_DAY};
+        String[] names = {"tick", "minute", "day"};
+        long bytesPerBucket = (long) BYTES_PER_BUCKET_AND_METRIC * metricNames.size() + BYTES_PER_BUCKET;
+        this.tiers = new Tier[resolutions.length];
+        for (int i = 0; i < tiers.length; i++) {
+            int capacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 4, (long) (memoryBudgetBytes * TIER_SHARE[i]) / bytesPerBucket));
+            tiers[i] = new Tier(names[i], resolutions[i], capacity, metricNames.size());
+        }
+    }
+
+    // Constructor used when loading a saved file; the tiers are read rather than allocated from a budget
+    private MetricsRecorder(List<String> metricNames, Tier[] tiers) {
+        this.metricNames = Collections.unmodifiableList(new ArrayList<>(metricNames));
+        this.tiers = tiers;
+    }
+
+    /**
+     * Records one sample of every metric. Ticks must be recorded in increasing order.
+     *
+     * @param tick   The tick the values belong to.
+     * @param values One value per metric, in the order of getMetricNames().
+     */
+    public synchronized void record(int tick, double[] values) {
+        if (values.length != metricNames.size()) {
+            throw new IllegalArgumentException("Expected " + metricNames.size() + " values but got " + values.length);
+        }
+        for (Tier tier : tiers) {
+            tier.add(tick, values);
+        }
+    }
+
+    /**
+     * Returns the values of one metric between two ticks, from the finest tier that still covers the start of the range.
+     *
+     * @param metric   The metric name.
+     * @param fromTick The first tick of the range, inclusive.
+     * @param toTick   The last tick of the range, inclusive.
+     * @return One point per bucket in the range that has data.
+     */
+    public synchronized Series query(String metric, int fromTick, int toTick) {
+        int column = metricNames.indexOf(metric);
+        if (column < 0) {
+            throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+        for (Tier tier : tiers) {
+            if (tier.covers(fromTick) || tier == tiers[tiers.length - 1]) {
+                return tier.read(metric, column, fromTick, toTick);
+            }
+        }
+        throw new IllegalStateException("No tiers");
+    }
+
+    /**
+     * Returns the values of one metric at a specific tier, e.g. one point per day.
+     *
+     * @param metric   The metric name.
+     * @param tierName "tick", "minute" or "day".
+     * @param fromTick The first tick of the range, inclusive.
+     * @param toTick   The last tick of the range, inclusive.
+     * @return One point per bucket in the range that has data.
+     */
+    public synchronized Series query(String metric, String tierName, int fromTick, int toTick) {
+        int column = metricNames.indexOf(metric);
+        if (column < 0) {
+            throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+        for (Tier tier : tiers) {
+            if (tier.name.equals(tierName)) {
+                return tier.read(metric, column, fromTick, toTick);
+            }
+        }
+        throw new IllegalArgumentException("Unknown tier: " + tierName);
+    }
+
+    //getter for the recorded metric names
+    public List<String> getMetricNames() {
+        return metricNames;
+    }
+
+    //number of bytes held by the rings
+    public long getFootprintBytes() {
+        long bytes = 0;
+        for (Tier tier : tiers) {
+            bytes += tier.footprintBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes every tier to a local file so the history survives the run.
+     * The rings are copied under the lock and written outside it, so recording is only held up for the copy.
+     *
+     * @param file The file to write; it is replaced if it exists.
+     * @throws IOException if the file cannot be written.
+     */
+    public void saveTo(Path file) throws IOException {
+        Tier[] tiers = copyTiers();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(metricNames.size());
+            for (String name : metricNames) {
+                out.writeUTF(name);
+            }
+            out.writeInt(tiers.length);
+            for (Tier tier : tiers) {
+                tier.writeTo(out);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Copies of every tier as they stand now
+    private synchronized Tier[] copyTiers() {
+        Tier[] copies = new Tier[tiers.length];
+        for (int i = 0; i < tiers.length; i++) {
+            copies[i] = new Tier(tiers[i]);
+        }
+        return copies;
+    }
+
+    /**
+     * Reads a file written by saveTo so its history can be queried.
+     *
+     * @param file The file to read.
+     * @return A recorder holding the saved history.
+     * @throws IOException if the file cannot be read or is not a metrics file.
+     */
+    public static MetricsRecorder loadFrom(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException(file + " is not a metrics file");
+            }
+            List<String> names = new ArrayList<>();
+            int metrics = in.readInt();
+            for (int i = 0; i < metrics; i++) {
+                names.add(in.readUTF());
+            }
+            Tier[] tiers = new Tier[in.readInt()];
+            for (int i = 0; i < tiers.length; i++) {
+                tiers[i] = Tier.readFrom(in, metrics);
+            }
+            return new MetricsRecorder(names, tiers);
+        }
+    }
+
+    /**
+     * The points returned by a query: bucket start ticks with the mean, minimum and maximum of each bucket.
+     */
+    public static class Series {
+        public final String metric;
+        public final String tier; // The tier the points came from
+        public final int resolutionTicks; // Width of one point, in ticks
+        public final long[] startTicks;
+        public final double[] mean;
+        public final double[] min;
+        public final double[] max;
+
+        Series(String metric, String tier, int resolutionTicks, long[] startTicks, double[] mean, double[] min, double[] max) {
+            this.metric = metric;
+            this.tier = tier;
+            this.resolutionTicks = resolutionTicks;
+            this.startTicks = startTicks;
+            this.mean = mean;
+            this.min = min;
+            this.max = max;
+        }
+
+        // Number of points in the series
+        public int size() {
+            return startTicks.length;
+        }
+    }
+
+    // One ring of buckets at a fixed resolution; metric values are laid out slot by slot in flat arrays
+    private static final class Tier {
+        private final String name;
+        private final int resolution; // Ticks per bucket
+        private final int capacity; // Buckets in the ring
+        private final int metrics;
+        private final long[] bucketIndex; // Which bucket (tick / resolution) each slot holds, -1 if empty
+        private final int[] samples; // Ticks recorded into each slot
+        private final float[] sum;
+        private final float[] min;
+        private final float[] max;
+        private long newestBucket = -1;
+
+        private Tier(String name, int resolution, int capacity, int metrics) {
+            int cells = cells(capacity, metrics);
+            this.name = name;
+            this.resolution = resolution;
+            this.capacity = capacity;
+            this.metrics = metrics;
+            this.bucketIndex = new long[capacity];
+            this.samples = new int[capacity];
+            this.sum = new float[cells];
+            this.min = new float[cells];
+            this.max = new float[cells];
+            Arrays.fill(bucketIndex, -1);
+        }
+
+        // Copy of another tier, taken so it can be written without holding the recorder's lock
+        private Tier(Tier other) {
+            this.name = other.name;
+            this.resolution = other.resolution;
+            this.capacity = other.capacity;
+            this.metrics = other.metrics;
+            this.bucketIndex = other.bucketIndex.clone();
+            this.samples = other.samples.clone();
+            this.sum = other.sum.clone();
+            this.min = other.min.clone();
+            this.max = other.max.clone();
+            this.newestBucket = other.newestBucket;
+        }
+
+        // Number of values per array for a ring of this size, worked out in long so an oversized ring is refused rather than wrapped
+        private static int cells(long capacity, long metrics) {
+            long cells = capacity * metrics;
+            if (capacity < 1 || metrics < 0 || cells > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("A tier of " + capacity + " buckets and " + metrics + " metrics does not fit in an array");
+            }
+            return (int) cells;
+        }
+
+        private void add(int tick, double[] values) {
+            long bucket = tick / resolution;
+            int slot = (int) (bucket % capacity);
+            int base = slot * metrics;
+            if (bucketIndex[slot] != bucket) {
+                // The slot held an older bucket that has now aged out of this tier
+                bucketIndex[slot] = bucket;
+                samples[slot] = 0;
+                Arrays.fill(sum, base, base + metrics, 0f);
+                Arrays.fill(min, base, base + metrics, Float.POSITIVE_INFINITY);
+                Arrays.fill(max, base, base + metrics, Float.NEGATIVE_INFINITY);
+            }
+            samples[slot]++;
+            for (int column = 0; column < metrics; column++) {
+                float value = (float) values[column];
+                sum[base + column] += value;
+                min[base + column] = Math.min(min[base + column], value);
+                max[base + column] = Math.max(max[base + column], value);
+            }
+            newestBucket = Math.max(newestBucket, bucket);
+        }
+
+        // Whether the bucket holding this tick is still in the ring
+        private boolean covers(int tick) {
+            return newestBucket >= 0 && tick / resolution > newestBucket - capacity;
+        }
+
+        private Series read(String metric, int column, int fromTick, int toTick) {
+            long first = Math.max(Math.max(0, fromTick / resolution), newestBucket - capacity + 1);
+            long last = Math.min(toTick / resolution, newestBucket);
+            int points = (int) Math.max(0, last - first + 1);
+            long[] starts = new long[points];
+            double[] means = new double[points];
+            double[] mins = new double[points];
+            double[] maxs = new double[points];
+            int found = 0;
+            for (long bucket = first; bucket <= last; bucket++) {
+                int slot = (int) (bucket % capacity);
+                if (bucketIndex[slot] != bucket || samples[slot] == 0) {
+                    continue;
+                }
+                int cell = slot * metrics + column;
+                starts[found] = bucket * resolution;
+                means[found] = sum[cell] / samples[slot];
+                mins[found] = min[cell];
+                maxs[found] = max[cell];
+                found++;
+            }
+            return new Series(metric, name, resolution, Arrays.copyOf(starts, found), Arrays.copyOf(means, found),
+                    Arrays.copyOf(mins, found), Arrays.copyOf(maxs, found));
+        }
+
+        private long footprintBytes() {
+            return (long) capacity * BYTES_PER_BUCKET + (long) capacity * metrics * BYTES_PER_BUCKET_AND_METRIC;
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeUTF(name);
+            out.writeInt(resolution);
+            out.writeInt(capacity);
+            out.writeLong(newestBucket);
+            for (int slot = 0; slot < capacity; slot++) {
+                out.writeLong(bucketIndex[slot]);
+                out.writeInt(samples[slot]);
+            }
+            for (int cell = 0; cell < sum.length; cell++) {
+                out.writeFloat(sum[cell]);
+                out.writeFloat(min[cell]);
+                out.writeFloat(max[cell]);
+            }
+        }
+
+        private static Tier readFrom(DataInputStream in, int metrics) throws IOException {
+            String name = in.readUTF();
+            int resolution = in.readInt();
+            int capacity = in.readInt();
+            Tier tier;
+            try {
+                tier = new Tier(name, resolution, capacity, metrics);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Bad " + name + " tier in metrics file: " + e.getMessage());
+            }
+            tier.newestBucket = in.readLong();
+            for (int slot = 0; slot < tier.capacity; slot++) {
+                tier.bucketIndex[slot] = in.readLong();
+                tier.samples[slot] = in.readInt();
+            }
+            for (int cell = 0; cell < tier.sum.length; cell++) {
+                tier.sum[cell] = in.readFloat();
+                tier.min[cell] = in.readFloat();
+                tier.max[cell] = in.readFloat();
+            }
+            return tier;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking connection from the coordinator to one partition process.
+ * Any number of threads can issue requests at once: each request is tagged with an id and queued,
+ * and a single I/O thread packs every queued request into one write and matches responses back to their callers.
+ */
+public class PartitionClient implements AutoCloseable {
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final Thread ioThread;
+    private final ConcurrentLinkedQueue<long[]> outbox = new ConcurrentLinkedQueue<>(); // {id, op, section, argument}
+    private final Map<Long, CompletableFuture<Integer>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong nextRequestId = new AtomicLong(1);
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final AtomicLong requestsSent = new AtomicLong();
+    private volatile boolean open = true;
+
+    /**
+     * Connects to a partition listening on the loopback interface.
+     *
+     * @param port The partition's port.
+     * @throws IOException if the connection cannot be made.
+     */
+    public PartitionClient(int port) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        channel.socket().setTcpNoDelay(true);
+        channel.configureBlocking(false);
+        this.selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+        writeBuffer.flip(); // start empty, in draining mode
+        this.ioThread = new Thread(this::ioLoop, "PartitionClient-" + port);
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    /**
+     * Sends a request without waiting for the answer.
+     *
+     * @return A future completed with the partition's result.
+     */
+    public CompletableFuture<Integer> send(byte op, int section, int argument) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        if (!open) {
+            result.completeExceptionally(new IOException("Partition connection is closed"));
+            return result;
+        }
+        long id = nextRequestId.getAndIncrement();
+        inFlight.put(id, result);
+        outbox.offer(new long[] {id, op, section, argument});
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+        return result;
+    }
+
+    /**
+     * Sends a request and waits for the answer.
+     *
+     * @return The partition's result.
+     * @throws InterruptedException if the caller is interrupted while waiting.
+     * @throws IllegalStateException if the connection to the partition has been lost.
+     */
+    public int call(byte op, int section, int argument) throws InterruptedException {
+        try {
+            return send(op, section, argument).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Partition request failed", e.getCause());
+        }
+    }
+
+    //number of requests written to the partition so far
+    public long getRequestsSent() {
+        return requestsSent.get();
+    }
+
+    private void ioLoop() {
+        try {
+            SelectionKey key = channel.keyFor(selector);
+            while (open) {
+                writeQueued(key);
+                selector.select();
+                wakeupPending.set(false);
+                if (key.isReadable()) {
+                    readResponses();
+                }
+            }
+        } catch (IOException e) {
+            open = false;
+        } finally {
+            IOException closed = new IOException("Partition connection is closed");
+            inFlight.values().forEach(future -> future.completeExceptionally(closed));
+            inFlight.clear();
+        }
+    }
+
+    // Packs queued requests into the write buffer and writes them in as few system calls as possible
+    private void writeQueued(SelectionKey key) throws IOException {
+        writeBuffer.compact();
+        long[] request;
+        while (writeBuffer.remaining() >= SectionProtocol.REQUEST_BYTES && (request = outbox.poll()) != null) {
+            SectionProtocol.writeRequest(writeBuffer, request[0], (byte) request[1], (int) request[2], (int) request[3]);
+            requestsSent.incrementAndGet();
+        }
+        writeBuffer.flip();
+        channel.write(writeBuffer);
+        boolean more = writeBuffer.hasRemaining() || !outbox.isEmpty();
+        key.interestOps(more ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void readResponses() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new IOException("Partition closed the connection");
+        }
+        readBuffer.flip();
+        while (readBuffer.remaining() >= SectionProtocol.RESPONSE_BYTES) {
+            long id = readBuffer.getLong();
+            int result = readBuffer.getInt();
+            CompletableFuture<Integer> future = inFlight.remove(id);
+            if (future != null) {
+                future.complete(result);
+            }
+        }
+        readBuffer.compact();
+    }
+
+    // Closes the connection; requests still in flight fail
+    @Override
+    public void close() throws IOException {
+        open = false;
+        selector.wakeup();
+        try {
+            ioThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        selector.close();
+    }
+}
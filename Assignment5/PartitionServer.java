@@ -0,0 +1,262 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A process that owns a partition of the store's sections and serves SectionProtocol requests for them over loopback.
+ * One selector thread does all socket I/O. The sections are SectionActors, so every request that changes a section
+ * is parked in its mailbox as a future and answered when it completes; no thread is held for a waiting customer,
+ * and the selector never waits for a drain. Reads are answered on the selector thread from the sections' published state.
+ *
+ * Usage: java PartitionServer &lt;port, 0 for any&gt; &lt;section name&gt;...
+ * Prints "READY &lt;port&gt;" once it is accepting connections.
+ */
+public class PartitionServer {
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    private static final int MAILBOX_BATCH = 64; // Most commands a section handles in one drain of its mailbox
+
+    private final SectionActor[] sections; // Indexed by the section number used on the wire
+    private final AtomicIntegerArray itemsSold;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(); // Coalesces selector wake-ups from the sections' drain threads
+    private final ConcurrentLinkedQueue<Connection> readyToWrite = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    // PartitionServer constructor, binds to the loopback interface
+    public PartitionServer(int port, String[] sectionNames) throws IOException {
+        this.sections = new SectionActor[sectionNames.length];
+        for (int i = 0; i < sectionNames.length; i++) {
+            sections[i] = new SectionActor(sectionNames[i], ThriftStore.INITIAL_SECTION_ITEMS, MAILBOX_BATCH);
+        }
+        this.itemsSold = new AtomicIntegerArray(sectionNames.length);
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    //getter for the port the partition is listening on
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    // Runs the selector loop until a SHUTDOWN request arrives
+    public void serve() throws IOException {
+        while (running) {
+            // Send everything answered since the last pass, then sleep until there is more to read or answer
+            Connection ready;
+            while ((ready = readyToWrite.poll()) != null) {
+                ready.flush();
+            }
+            selector.select();
+            wakeupPending.set(false);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept();
+                } else {
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        connection.read();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.flush();
+                    }
+                }
+            }
+        }
+        Connection ready;
+        while ((ready = readyToWrite.poll()) != null) {
+            ready.flush(); // answer the SHUTDOWN request before closing
+        }
+        selector.close();
+        server.close();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    /**
+     * Parks an operation that goes through its section's mailbox.
+     *
+     * @return The future result, or null if the operation only reads and should be run with execute.
+     */
+    private CompletableFuture<Integer> executeLater(byte op, int sectionIndex, int argument) {
+        SectionActor section = sectionIndex >= 0 && sectionIndex < sections.length ? sections[sectionIndex] : null;
+        if (section == null) {
+            return null;
+        }
+        switch (op) {
+            case SectionProtocol.BUY_WITHIN:
+                long timeoutNanos = argument < 0 ? Long.MAX_VALUE : argument * 1_000_000L;
+                return section.removeItemAsync(timeoutNanos).thenApply(bought -> sold(sectionIndex, bought));
+            case SectionProtocol.TRY_BUY:
+                return section.tryRemoveItemAsync().thenApply(bought -> sold(sectionIndex, bought));
+            case SectionProtocol.ADD:
+                return section.addItemsAsync(argument, Long.MAX_VALUE).thenApply(added -> 0);
+            case SectionProtocol.RETURN:
+                return section.addItemsAsync(argument, Long.MAX_VALUE).thenApply(added -> {
+                    itemsSold.addAndGet(sectionIndex, -argument);
+                    return 0;
+                });
+            case SectionProtocol.START_STOCKING:
+                return section.startStockingAsync().thenApply(claimed -> 0);
+            case SectionProtocol.FINISH_STOCKING:
+                return section.finishStockingAsync().thenApply(finished -> 0);
+            default:
+                return null;
+        }
+    }
+
+    // Runs an operation that only reads its section, on the selector thread
+    private int execute(byte op, int sectionIndex, int argument) {
+        Section section = sectionIndex >= 0 && sectionIndex < sections.length ? sections[sectionIndex] : null;
+        switch (op) {
+            case SectionProtocol.SHUTDOWN:
+                running = false;
+                return 0;
+            default:
+                break;
+        }
+        if (section == null) {
+            return -1;
+        }
+        switch (op) {
+            case SectionProtocol.IS_BEING_STOCKED:
+                return section.isBeingStocked() ? 1 : 0;
+            case SectionProtocol.ITEM_COUNT:
+                return section.getItemCount();
+            case SectionProtocol.WAITLIST_LENGTH:
+                return section.getWaitlistLength();
+            case SectionProtocol.IS_LOW_ON_STOCK:
+                return section.isLowOnStock() ? 1 : 0;
+            case SectionProtocol.ITEMS_SOLD:
+                return itemsSold.get(sectionIndex);
+            default:
+                return -1;
+        }
+    }
+
+    private int sold(int sectionIndex, boolean bought) {
+        if (bought) {
+            itemsSold.incrementAndGet(sectionIndex);
+        }
+        return bought ? 1 : 0;
+    }
+
+    // One coordinator connection: parses requests as they arrive and batches responses into as few writes as possible
+    private final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+        private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        private final ConcurrentLinkedQueue<long[]> responses = new ConcurrentLinkedQueue<>(); // {id, result}
+        private final AtomicBoolean queuedForWrite = new AtomicBoolean();
+        private SelectionKey key;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+            writeBuffer.flip(); // start empty, in draining mode
+        }
+
+        private void read() throws IOException {
+            int read;
+            try {
+                read = channel.read(readBuffer);
+            } catch (IOException e) {
+                read = -1;
+            }
+            if (read < 0) {
+                key.cancel();
+                channel.close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.remaining() >= SectionProtocol.REQUEST_BYTES) {
+                long id = readBuffer.getLong();
+                byte op = readBuffer.get();
+                int section = readBuffer.getShort();
+                int argument = readBuffer.getInt();
+                dispatch(id, op, section, argument);
+            }
+            readBuffer.compact();
+        }
+
+        private void dispatch(long id, byte op, int section, int argument) {
+            CompletableFuture<Integer> parked = executeLater(op, section, argument);
+            if (parked != null) {
+                parked.thenAccept(result -> respond(id, result)); // answered from the section's drain when it completes
+                return;
+            }
+            respond(id, execute(op, section, argument));
+        }
+
+        // Queues a response; safe to call from any thread
+        private void respond(long id, int result) {
+            responses.offer(new long[] {id, result});
+            if (queuedForWrite.compareAndSet(false, true)) {
+                readyToWrite.offer(this);
+                if (wakeupPending.compareAndSet(false, true)) {
+                    selector.wakeup();
+                }
+            }
+        }
+
+        // Packs every queued response into the write buffer and writes as much as the socket takes
+        private void flush() throws IOException {
+            queuedForWrite.set(false);
+            if (!channel.isOpen()) {
+                return;
+            }
+            writeBuffer.compact();
+            long[] response;
+            while (writeBuffer.remaining() >= SectionProtocol.RESPONSE_BYTES && (response = responses.poll()) != null) {
+                SectionProtocol.writeResponse(writeBuffer, response[0], (int) response[1]);
+            }
+            writeBuffer.flip();
+            channel.write(writeBuffer);
+            boolean more = writeBuffer.hasRemaining() || !responses.isEmpty();
+            key.interestOps(more ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Starts a partition process.
+     *
+     * @param args The port to listen on, followed by the names of the sections this partition owns.
+     * @throws IOException if the partition cannot listen on the port.
+     */
+    public static void main(String[] args) throws IOException {
+        String[] sectionNames = new String[args.length - 1];
+        System.arraycopy(args, 1, sectionNames, 0, sectionNames.length);
+        PartitionServer partition = new PartitionServer(Integer.parseInt(args[0]), sectionNames);
+        System.out.println("READY " + partition.getPort());
+        System.out.flush();
+        partition.serve();
+    }
+}
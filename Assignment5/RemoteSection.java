@@ -0,0 +1,170 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A section owned by a partition process. Every operation is forwarded to the partition through a PartitionClient,
+ * so the store, customers and assistants use it exactly like a local Section.
+ */
+public class RemoteSection extends Section {
+    private final PartitionClient partition;
+    private final int index; // The section's number within its partition
+
+    // RemoteSection constructor
+    public RemoteSection(String name, PartitionClient partition, int index) {
+        super(name, 0);
+        this.partition = partition;
+        this.index = index;
+    }
+
+    @Override
+    public void addItemFromSection(int count) {
+        callQuietly(SectionProtocol.ADD, count);
+    }
+
+    // The partition owns the shelf, so a remote section is never full as far as the store can tell
+    @Override
+    public int addItemsWithin(int count, long timeoutNanos) {
+        callQuietly(SectionProtocol.ADD, count);
+        return count;
+    }
+
+    @Override
+    public void setCapacity(int capacity, int lowWatermark, int highWatermark) {
+    }
+
+    @Override
+    public int getFreeSpace() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean isNearlyFull() {
+        return false;
+    }
+
+    @Override
+    public boolean removeItemFromSection() {
+        try {
+            return buy(SectionProtocol.BUY_WITHIN, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean tryRemoveItem() {
+        try {
+            return buy(SectionProtocol.TRY_BUY, 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean removeItemWithin(long timeoutNanos) throws InterruptedException {
+        long millis = Math.min(Integer.MAX_VALUE, Math.max(0, (timeoutNanos + 999_999) / 1_000_000));
+        return buy(SectionProtocol.BUY_WITHIN, (int) millis);
+    }
+
+    /**
+     * Sends a purchase to the partition and waits for the answer. If the buyer is interrupted first, the partition
+     * may still hand over an item once the buyer has stopped listening, so that item is returned to the shelf.
+     *
+     * @return true if an item was bought.
+     * @throws InterruptedException if the buyer is interrupted before the partition answers.
+     */
+    private boolean buy(byte op, int argument) throws InterruptedException {
+        CompletableFuture<Integer> reply = partition.send(op, index, argument);
+        try {
+            return reply.get() == 1;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Partition request failed", e.getCause());
+        } catch (InterruptedException e) {
+            reply.thenAccept(sold -> {
+                if (sold == 1) {
+                    partition.send(SectionProtocol.RETURN, index, 1);
+                }
+            });
+            throw e;
+        }
+    }
+
+    @Override
+    public int getWaitlistLength() {
+        return callQuietly(SectionProtocol.WAITLIST_LENGTH, 0);
+    }
+
+    /**
+     * Claims the section on the partition, waiting while another assistant is stocking it. If the assistant is
+     * interrupted first, the claim may still be granted once nobody is listening, so it is released again.
+     */
+    @Override
+    public void startStockingProcess() throws InterruptedException {
+        CompletableFuture<Integer> reply = partition.send(SectionProtocol.START_STOCKING, index, 0);
+        try {
+            reply.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Partition request failed", e.getCause());
+        } catch (InterruptedException e) {
+            reply.thenAccept(ignored -> partition.send(SectionProtocol.FINISH_STOCKING, index, 0));
+            throw e;
+        }
+    }
+
+    @Override
+    public void finishStockingProcess() {
+        callQuietly(SectionProtocol.FINISH_STOCKING, 0);
+    }
+
+    @Override
+    public boolean isBeingStocked() {
+        return callQuietly(SectionProtocol.IS_BEING_STOCKED, 0) == 1;
+    }
+
+    @Override
+    public boolean canSellNow() {
+        return !isBeingStocked() && getItemCount() > 0 && getWaitlistLength() == 0;
+    }
+
+    @Override
+    public int getItemCount() {
+        return Math.max(0, callQuietly(SectionProtocol.ITEM_COUNT, 0));
+    }
+
+    @Override
+    public boolean isLowOnStock() {
+        return callQuietly(SectionProtocol.IS_LOW_ON_STOCK, 0) == 1;
+    }
+
+    // The partition serialises each section on its own, so a remote snapshot is read section by section
+    @Override
+    int lockForSnapshot() {
+        return getItemCount();
+    }
+
+    @Override
+    void unlockAfterSnapshot() {
+    }
+
+    // Whether this section is owned by the partition behind the given connection
+    public boolean belongsTo(PartitionClient client) {
+        return partition == client;
+    }
+
+    // Items sold from this section, as counted by the partition
+    public int getItemsSold() {
+        return callQuietly(SectionProtocol.ITEMS_SOLD, 0);
+    }
+
+    // Calls the partition for methods that cannot throw InterruptedException, keeping the interrupt for the caller
+    private int callQuietly(byte op, int argument) {
+        try {
+            return partition.call(op, index, argument);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+}
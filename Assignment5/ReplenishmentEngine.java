@@ -0,0 +1,231 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides what the supplier sends and when, from the store's sales instead of a fixed random mix.
+ * Demand comes from the store's DemandForecaster, which averages every purchase request, including the ones
+ * that find the shelf empty, so demand is still seen while a category is out of stock.
+ * Every review it works out each category's inventory position (items on the shelves, in the delivery box
+ * and on order, less the customers already waiting) and compares it with a reorder point: the demand expected over the supplier's lead time
+ * and the next review, plus a safety stock for each section. When any category falls to its reorder point an order is placed,
+ * topping every category up towards its order-up-to level.
+ * Items on a shelf cannot move to another section of the same category, so each section only counts towards the
+ * position up to its own share of the order-up-to level; a full section does not hide an empty one next to it.
+ * The supplier can only ship maxItemsPerDelivery items every deliveryFrequencyTicks on average;
+ * that capacity builds up as credit, and unused credit carries over for a few deliveries, so the engine delivers
+ * about the same volume as the fixed schedule but in orders of varying size and timing. When the credit does not cover everything,
+ * the categories with the fewest ticks of stock left are filled first.
+ */
+public class ReplenishmentEngine {
+    private static final int CREDIT_DELIVERIES = 3; // Deliveries' worth of supplier capacity that can be saved up while nothing is needed
+    private final ThriftStore store;
+    private final Deque<Order> inTransit = new ArrayDeque<>(); // Orders placed and not yet delivered, oldest first
+    private final Map<String, Integer> onOrder = new HashMap<>(); // Items in transit, per category
+    private double supplierCredit; // Items the supplier can still ship
+    private int lastPollTick;
+    private int lastReviewTick = Integer.MIN_VALUE / 2;
+    private long ordersPlaced = 0;
+    private long itemsOrdered = 0;
+
+    // An order on its way from the supplier
+    private static final class Order {
+        private final int arrivalTick;
+        private final Map<String, Integer> items;
+
+        private Order(int arrivalTick, Map<String, Integer> items) {
+            this.arrivalTick = arrivalTick;
+            this.items = items;
+        }
+    }
+
+    /**
+     * The engine's orders in transit and supplier credit at one instant, for a StoreSnapshot.
+     * Immutable, so every fork built from the snapshot can start its own engine from it.
+     */
+    public static final class State {
+        private final List<Order> inTransit;
+        private final double supplierCredit;
+        private final int lastPollTick;
+        private final int lastReviewTick;
+
+        private State(List<Order> inTransit, double supplierCredit, int lastPollTick, int lastReviewTick) {
+            this.inTransit = inTransit;
+            this.supplierCredit = supplierCredit;
+            this.lastPollTick = lastPollTick;
+            this.lastReviewTick = lastReviewTick;
+        }
+    }
+
+    // ReplenishmentEngine constructor
+    public ReplenishmentEngine(ThriftStore store) {
+        this.store = store;
+        this.lastPollTick = store.getCurrentTick();
+    }
+
+    // Builds a forked store's engine that carries on with the live engine's orders and credit
+    public ReplenishmentEngine(ThriftStore store, State state) {
+        this.store = store;
+        for (Order order : state.inTransit) {
+            inTransit.addLast(order); // orders are never changed once placed, so forks can share them
+            order.items.forEach((category, items) -> onOrder.merge(category, items, Integer::sum));
+        }
+        this.supplierCredit = state.supplierCredit;
+        this.lastPollTick = state.lastPollTick;
+        this.lastReviewTick = state.lastReviewTick;
+    }
+
+    //copies the orders in transit and the supplier credit
+    public synchronized State getState() {
+        List<Order> orders = new ArrayList<>();
+        for (Order order : inTransit) {
+            orders.add(new Order(order.arrivalTick, Collections.unmodifiableMap(new HashMap<>(order.items))));
+        }
+        return new State(Collections.unmodifiableList(orders), supplierCredit, lastPollTick, lastReviewTick);
+    }
+
+    /**
+     * Called by the delivery thread as the clock moves on. Builds up supplier credit, reviews stock
+     * if a review is due and returns whatever orders have arrived by now.
+     *
+     * @param tick    The current tick.
+     * @param boxRoom Items the delivery box can still take; orders due while it is full wait at the supplier.
+     * @return The items that have arrived, by category; empty if nothing is due.
+     */
+    public synchronized Map<String, Integer> poll(int tick, int boxRoom) {
+        Config config = store.getConfig();
+        double capacityPerTick = (double) config.maxItemsPerDelivery / Math.max(1, config.deliveryFrequencyTicks);
+        int elapsed = Math.max(0, tick - lastPollTick);
+        supplierCredit = Math.min((double) config.maxItemsPerDelivery * CREDIT_DELIVERIES, supplierCredit + capacityPerTick * elapsed);
+        lastPollTick = tick;
+
+        Map<String, Integer> arrived = new HashMap<>();
+        int room = boxRoom;
+        if (room <= 0 && !inTransit.isEmpty() && inTransit.peekFirst().arrivalTick <= tick) {
+            store.recordDeliveryHeldBack();
+        }
+        while (room > 0 && !inTransit.isEmpty() && inTransit.peekFirst().arrivalTick <= tick) {
+            Order order = inTransit.pollFirst();
+            room -= order.items.values().stream().mapToInt(Integer::intValue).sum();
+            order.items.forEach((category, items) -> {
+                arrived.merge(category, items, Integer::sum);
+                onOrder.merge(category, -items, Integer::sum);
+            });
+        }
+
+        if (tick - lastReviewTick >= config.reorderReviewTicks) {
+            lastReviewTick = tick;
+            review(config, tick);
+        }
+        return arrived;
+    }
+
+    // Places an order if any category has fallen to its reorder point
+    private void review(Config config, int tick) {
+        List<String> categories = store.getCategories();
+        if (categories.isEmpty()) {
+            return;
+        }
+        double capacityPerTick = (double) config.maxItemsPerDelivery / Math.max(1, config.deliveryFrequencyTicks);
+        double demandFloor = 0.1 * capacityPerTick / categories.size(); // keeps slow sellers from never being reordered
+        Map<String, Double> demand = new HashMap<>();
+        Map<String, Integer> position = new HashMap<>();
+        Map<String, Integer> shortfall = new HashMap<>();
+        boolean reorder = false;
+        for (String category : categories) {
+            double rate = Math.max(demandFloor, store.getDemandForecaster().getCategoryDemandRate(category));
+            List<String> sectionNames = store.getSectionNamesInCategory(category);
+            double safetyStock = config.lowStockWatermark * sectionNames.size();
+            double reorderPoint = rate * (config.supplierLeadTicks + config.reorderReviewTicks) + safetyStock;
+            // Never order more than the shelves and this category's share of the delivery box can hold
+            double ceiling = store.getShelfCapacity(category)
+                    + (config.maxDeliveryBoxItems > 0 ? (double) config.maxDeliveryBoxItems / categories.size() : Double.POSITIVE_INFINITY);
+            double orderUpTo = Math.min(reorderPoint + rate * config.deliveryFrequencyTicks, ceiling);
+            // Stock above a section's own share cannot fill the other sections, so it does not count towards the position
+            int sectionShare = (int) Math.ceil(orderUpTo / Math.max(1, sectionNames.size()));
+            int onShelves = 0;
+            int waiting = 0;
+            for (String sectionName : sectionNames) {
+                onShelves += Math.min(store.getSectionItemCount(sectionName), sectionShare);
+                waiting += store.getSectionWaitlistLength(sectionName);
+            }
+            int inventory = onShelves + store.getDeliveryBoxCount(category) + onOrder.getOrDefault(category, 0) - waiting;
+            demand.put(category, rate);
+            position.put(category, inventory);
+            shortfall.put(category, (int) Math.max(0, Math.ceil(orderUpTo - inventory)));
+            reorder |= inventory <= reorderPoint;
+        }
+        int budget = (int) Math.floor(supplierCredit);
+        int wanted = shortfall.values().stream().mapToInt(Integer::intValue).sum();
+        // Small orders cost an assistant a whole trip each, so wait until the order is worth sending
+        if (!reorder || budget <= 0 || budget < Math.min(wanted, config.minOrderItems)) {
+            return;
+        }
+
+        // Hand out the budget one item at a time to whichever category has the fewest ticks of stock left
+        Map<String, Integer> items = new HashMap<>();
+        for (int given = 0; given < budget; given++) {
+            String neediest = null;
+            double leastCover = Double.POSITIVE_INFINITY;
+            for (String category : categories) {
+                if (shortfall.get(category) <= 0) {
+                    continue;
+                }
+                double cover = (double) position.get(category) / demand.get(category);
+                if (cover < leastCover) {
+                    leastCover = cover;
+                    neediest = category;
+                }
+            }
+            if (neediest == null) {
+                break;
+            }
+            items.merge(neediest, 1, Integer::sum);
+            position.merge(neediest, 1, Integer::sum);
+            shortfall.merge(neediest, -1, Integer::sum);
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+        int total = items.values().stream().mapToInt(Integer::intValue).sum();
+        supplierCredit -= total;
+        items.forEach((category, count) -> onOrder.merge(category, count, Integer::sum));
+        inTransit.addLast(new Order(tick + config.supplierLeadTicks, items));
+        ordersPlaced++;
+        itemsOrdered += total;
+        store.log(String.format("<Tick %d> Ordered %d items from the supplier, arriving at tick %d: %s",
+                tick, total, tick + config.supplierLeadTicks, items));
+    }
+
+    //getter for the number of orders placed so far
+    public synchronized long getOrdersPlaced() {
+        return ordersPlaced;
+    }
+
+    //getter for the number of items ordered so far
+    public synchronized long getItemsOrdered() {
+        return itemsOrdered;
+    }
+
+    //items currently on their way from the supplier, by category
+    public synchronized Map<String, Integer> getOnOrder() {
+        Map<String, Integer> pending = new HashMap<>();
+        onOrder.forEach((category, items) -> {
+            if (items > 0) {
+                pending.put(category, items);
+            }
+        });
+        return pending;
+    }
+
+    // One line summary for the end of day report
+    public synchronized String describe() {
+        List<String> pending = new ArrayList<>();
+        getOnOrder().forEach((category, items) -> pending.add(category + ": " + items));
+        return String.format("%d orders, %d items ordered, on order now {%s}", ordersPlaced, itemsOrdered, String.join(", ", pending));
+    }
+}
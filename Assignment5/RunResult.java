@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of one simulation run started through SimulationRunner.
+ */
+public class RunResult {
+    public final int ticks; // Ticks that were simulated
+    public final double averageCustomerWaitTime; // Average customer wait over the run, in ticks
+    public final double averageAssistantWorkTime; // Average assistant work time over the run, in ticks
+    public final long purchases; // Purchases completed
+    public final long abandonments; // Customers that left after waiting too long
+    public final long restocks; // Stocking operations completed
+    public final int p95CustomerWaitTime; // 95th percentile customer wait, in ticks
+    public final double averageCheckoutWaitTime; // Average time a basket queued at the checkout, in ticks
+    public final int p95CheckoutWaitTime; // 95th percentile checkout queue wait, in ticks
+    public final long emptySectionHits; // Purchases that found their section empty or being stocked
+    public final long emptySectionTicks; // Section-ticks spent with an empty shelf
+    public final long itemsDelivered; // Items delivered after the first delivery
+    public final long assistantTicks; // Assistant-ticks spent over the run
+    public final int finalAssistants; // Assistants on the floor when the run ended
+    public final boolean cleanShutdown; // Whether every actor stopped before the shutdown timeout
+    public final List<String> dailyReports; // End of day reports produced during the run
+
+    // RunResult constructor, reads the final figures from a store that has been shut down
+    RunResult(ThriftStore store, int ticks, boolean cleanShutdown) {
+        this.ticks = ticks;
+        this.averageCustomerWaitTime = store.getAverageCustomerWaitTime();
+        this.averageAssistantWorkTime = store.getAverageAssistantWorkTime();
+        this.purchases = store.getTotalPurchases();
+        this.abandonments = store.getTotalAbandonments();
+        this.restocks = store.getTotalRestocks();
+        this.p95CustomerWaitTime = store.getCustomerWaitPercentile(95);
+        this.emptySectionHits = store.getEmptySectionHits();
+        this.emptySectionTicks = store.getEmptySectionTicks();
+        this.itemsDelivered = store.getTotalItemsDelivered();
+        this.averageCheckoutWaitTime = store.getAverageCheckoutWaitTime();
+        this.p95CheckoutWaitTime = store.getCheckoutWaitPercentile(95);
+        this.assistantTicks = store.getStaffingController().getTotalAssistantTicks();
+        this.finalAssistants = store.getConfig().numberOfAssistants;
+        this.cleanShutdown = cleanShutdown;
+        this.dailyReports = Collections.unmodifiableList(new ArrayList<>(store.getDailyReports()));
+    }
+
+    // RunResult constructor for engines that keep their own figures rather than a ThriftStore
+    RunResult(int ticks, double averageCustomerWaitTime, double averageAssistantWorkTime, long purchases, long abandonments,
+              long restocks, int p95CustomerWaitTime, double averageCheckoutWaitTime, int p95CheckoutWaitTime,
+              long emptySectionHits, long emptySectionTicks, long itemsDelivered, long assistantTicks, int finalAssistants,
+              boolean cleanShutdown, List<String> dailyReports) {
+        this.ticks = ticks;
+        this.averageCustomerWaitTime = averageCustomerWaitTime;
+        this.averageAssistantWorkTime = averageAssistantWorkTime;
+        this.purchases = purchases;
+        this.abandonments = abandonments;
+        this.restocks = restocks;
+        this.p95CustomerWaitTime = p95CustomerWaitTime;
+        this.averageCheckoutWaitTime = averageCheckoutWaitTime;
+        this.p95CheckoutWaitTime = p95CheckoutWaitTime;
+        this.emptySectionHits = emptySectionHits;
+        this.emptySectionTicks = emptySectionTicks;
+        this.itemsDelivered = itemsDelivered;
+        this.assistantTicks = assistantTicks;
+        this.finalAssistants = finalAssistants;
+        this.cleanShutdown = cleanShutdown;
+        this.dailyReports = Collections.unmodifiableList(new ArrayList<>(dailyReports));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ticks=%d, avgWait=%.2f, p95Wait=%d, avgCheckoutWait=%.2f, p95CheckoutWait=%d, avgWork=%.2f, purchases=%d, abandonments=%d, emptySectionHits=%d, emptySectionTicks=%d, itemsDelivered=%d, assistantTicks=%d, finalAssistants=%d, cleanShutdown=%b",
+                ticks, averageCustomerWaitTime, p95CustomerWaitTime, averageCheckoutWaitTime, p95CheckoutWaitTime, averageAssistantWorkTime, purchases, abandonments, emptySectionHits, emptySectionTicks, itemsDelivered,
+                assistantTicks, finalAssistants, cleanShutdown);
+    }
+}
@@ -1,13 +1,33 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class Section {
+    public static final int LOW_STOCK_THRESHOLD = 2; // Default low watermark: a section at or below this many items is low on stock
     private final String name;
     private int itemCount; // num of items in the section
     private final Lock lock = new ReentrantLock(); // Control who can access what in a given section using a lock
     private final Condition condition = lock.newCondition(); //Coordination of add/remove operations and their conditional variables
     private volatile boolean isBeingStocked = false;
+    private final Deque<Waiter> waitlist = new ArrayDeque<>(); // Customers waiting for an item, first come first served
+    private final Condition roomFreed = lock.newCondition(); // Signalled when an item leaves a full section
+    private int stockersWaitingForRoom = 0; // Assistants waiting for shelf space
+    private int capacity = Integer.MAX_VALUE; // Most items the shelf holds
+    private int lowWatermark = LOW_STOCK_THRESHOLD; // At or below this the section is low on stock
+    private int highWatermark = Integer.MAX_VALUE; // At or above this the section is nearly full
+
+    // A customer on the waitlist; each one has its own condition so it can be woken on its own
+    private static final class Waiter {
+        private final Condition turn;
+        private boolean granted = false; // Set once an item has been handed to this customer
+
+        private Waiter(Condition turn) {
+            this.turn = turn;
+        }
+    }
 
     // Section constructor
     public Section(String name, int initialItems) {
@@ -15,49 +35,209 @@ public class Section {
         this.itemCount = initialItems;
     }
 
-    // Incorporates 'count' items into the section as it awaits restocking
+    //getter for the section name
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets how many items the shelf holds and where its low and high watermarks are.
+     *
+     * @param capacity      Most items the shelf holds.
+     * @param lowWatermark  At or below this many items the section is low on stock.
+     * @param highWatermark At or above this many items the section is nearly full.
+     */
+    public void setCapacity(int capacity, int lowWatermark, int highWatermark) {
+        lock.lock();
+        try {
+            this.capacity = Math.max(1, capacity);
+            this.lowWatermark = lowWatermark;
+            this.highWatermark = Math.min(highWatermark, this.capacity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Incorporates 'count' items into the section as it awaits restocking, waiting for as long as it takes to fit them all
     public void addItemFromSection(int count) {
+        addItemsWithin(count, Long.MAX_VALUE);
+    }
+
+    /**
+     * Adds items to the section without overfilling it. Items are handed straight to waiting customers;
+     * once the shelf is full the assistant waits for customers to make room, for up to the timeout.
+     * An interrupt stops the wait early; the interrupt flag is kept for the caller.
+     *
+     * @param count        Items to add.
+     * @param timeoutNanos How long to wait for room, in nanoseconds.
+     * @return The number of items that were put on the shelf; the rest did not fit in time.
+     */
+    public int addItemsWithin(int count, long timeoutNanos) {
         lock.lock();
+        int added = 0;
         try {
             // Do not stock till; Wait
             while (isBeingStocked) {
                 condition.await();
             }
-            itemCount += count; // Update the item's count
-            condition.signalAll(); // Notify every thread that is waiting
+            long remaining = timeoutNanos;
+            while (true) {
+                int fits = Math.max(0, Math.min(count - added, capacity - itemCount));
+                itemCount += fits; // Update the item's count
+                added += fits;
+                handOffToWaitlist(); // Hand the new items straight to the customers waiting for them
+                if (added == count || remaining <= 0) {
+                    break;
+                }
+                if (itemCount < capacity) {
+                    continue; // waiting customers took some of them, so more fit now
+                }
+                stockersWaitingForRoom++;
+                try {
+                    remaining = roomFreed.awaitNanos(remaining);
+                } finally {
+                    stockersWaitingForRoom--;
+                }
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // Indicate that this topic should be interrupted
         } finally {
             lock.unlock();
         }
+        return added;
     }
 
     // This method waits if there are no items available or if the section is being restocked before attempting to remove an item from it.
     public boolean removeItemFromSection() {
+        try {
+            return removeItemWithin(Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Set the thread's stop flag
+            return false;
+        }
+    }
+
+    // Takes an item only if one can be sold right now and nobody is queued ahead; never waits
+    public boolean tryRemoveItem() {
         lock.lock();
         try {
-            // Wait while there is no item or stocking.
-            while (itemCount == 0 || isBeingStocked) {
-                condition.await();
-            }
-            if (itemCount > 0) {
-                itemCount--;
-                condition.signalAll(); // inform all threads that are waiting
+            if (waitlist.isEmpty() && itemCount > 0 && !isBeingStocked) {
+                takeItem();
                 return true;
             }
             return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes an item, joining the back of the section's waitlist if none can be sold right now.
+     * Waiting customers are not polled; they sleep until addItemFromSection or finishStockingProcess
+     * hands them an item, in the order they arrived, or until their patience runs out.
+     *
+     * @param timeoutNanos How long the customer is prepared to wait, in nanoseconds.
+     * @return true if an item was taken, false if the customer gave up waiting.
+     * @throws InterruptedException if the customer is interrupted before being handed an item.
+     */
+    public boolean removeItemWithin(long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            // Only serve straight away if nobody is queued ahead, so late arrivals cannot jump the queue
+            if (waitlist.isEmpty() && itemCount > 0 && !isBeingStocked) {
+                takeItem();
+                return true;
+            }
+            Waiter waiter = new Waiter(lock.newCondition());
+            waitlist.addLast(waiter);
+            long remaining = timeoutNanos;
+            try {
+                while (!waiter.granted && remaining > 0) {
+                    remaining = waiter.turn.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (!waiter.granted) {
+                    throw e;
+                }
+                Thread.currentThread().interrupt(); // The item is already ours; keep it and pass the interrupt on
+            } finally {
+                if (!waiter.granted) {
+                    waitlist.remove(waiter);
+                }
+            }
+            return waiter.granted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Asks for an item through a future. A locked section has no mailbox, so this is synchronous: it waits
+     * on the calling thread exactly like removeItemWithin and returns a future that is already complete.
+     * SectionActor overrides it to queue the request and return straight away.
+     *
+     * @param timeoutNanos How long the customer is prepared to wait, in nanoseconds.
+     * @return Completes with true if an item was taken, false if the customer gave up waiting.
+     */
+    public CompletableFuture<Boolean> removeItemAsync(long timeoutNanos) {
+        try {
+            return CompletableFuture.completedFuture(removeItemWithin(timeoutNanos));
         } catch (InterruptedException e) {
-            Thread.currentThread().interrupt(); // Set the thread's stop flag
-            return false;
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    // Adds items through a future; synchronous here like addItemsWithin, while SectionActor queues them and returns straight away
+    public CompletableFuture<Integer> addItemsAsync(int count, long timeoutNanos) {
+        return CompletableFuture.completedFuture(addItemsWithin(count, timeoutNanos));
+    }
+
+    // Whether a customer asking now would be served without joining the waitlist
+    public boolean canSellNow() {
+        lock.lock();
+        try {
+            return waitlist.isEmpty() && itemCount > 0 && !isBeingStocked;
         } finally {
             lock.unlock();
         }
     }
 
-    // Method Starts the process of stocking
-    public void startStockingProcess() {
+    // Hands available items to waiting customers in arrival order. The lock must be held.
+    private void handOffToWaitlist() {
+        while (itemCount > 0 && !isBeingStocked && !waitlist.isEmpty()) {
+            Waiter waiter = waitlist.pollFirst();
+            takeItem();
+            waiter.granted = true;
+            waiter.turn.signal();
+        }
+    }
+
+    // Removes one item and tells any assistant waiting for shelf space. The lock must be held.
+    private void takeItem() {
+        itemCount--;
+        if (stockersWaitingForRoom > 0) {
+            roomFreed.signalAll(); // only assistants wait here, and there are few of them
+        }
+    }
+
+    // Number of customers currently waiting for an item in this section
+    public int getWaitlistLength() {
         lock.lock();
         try {
+            return waitlist.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Method Starts the process of stocking, waiting until any other assistant stocking this section has finished
+    public void startStockingProcess() throws InterruptedException {
+        lock.lock();
+        try {
+            while (isBeingStocked) {
+                condition.await(); // woken by finishStockingProcess
+            }
             isBeingStocked = true;
         } finally {
             lock.unlock();
@@ -69,12 +249,25 @@ public class Section {
         lock.lock();
         try {
             isBeingStocked = false;
+            handOffToWaitlist(); // serve the customers that queued while the section was being stocked
             condition.signalAll(); // inform all threads that are waiting
         } finally {
             lock.unlock();
         }
     }
 
+    // Locks the section and returns its item count, so several sections can be read at one consistent instant.
+    // Every call must be followed by unlockAfterSnapshot.
+    int lockForSnapshot() {
+        lock.lock();
+        return itemCount;
+    }
+
+    // Releases a section locked by lockForSnapshot
+    void unlockAfterSnapshot() {
+        lock.unlock();
+    }
+
     // Verifies the present status of section stocking
     public boolean isBeingStocked() {
         lock.lock();
@@ -95,11 +288,51 @@ public class Section {
         }
     }
 
+    // Verifies if the section is at or above its high watermark
+    public boolean isNearlyFull() {
+        lock.lock();
+        try {
+            return itemCount >= highWatermark;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Items that can still be put on the shelf
+    public int getFreeSpace() {
+        lock.lock();
+        try {
+            return Math.max(0, capacity - itemCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //getter for the most items the shelf holds
+    public int getCapacity() {
+        lock.lock();
+        try {
+            return capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //getter for the low watermark
+    public int getLowWatermark() {
+        lock.lock();
+        try {
+            return lowWatermark;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     // Verifies if the section has a low stock level, using a predetermined threshold.
     public boolean isLowOnStock() {
         lock.lock();
         try {
-            return itemCount <= 2; // low stock threshold
+            return itemCount <= lowWatermark; // low stock threshold
         } finally {
             lock.unlock();
         }
@@ -0,0 +1,422 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A section owned by a single logical executor instead of a lock. Callers post buy, stock and
+ * start/finish-stocking commands to the section's mailbox and get a CompletableFuture back.
+ * Only one drain of the mailbox runs at a time, on a shared pool, so the section's state is only
+ * ever touched by one thread and needs no lock. Each drain handles a batch of commands and then
+ * completes exactly the customers that were handed an item, instead of waking every waiter.
+ *
+ * The blocking Section methods still work: they post the command and wait for its reply, so
+ * Customer and Assistant threads can use an actor section unchanged.
+ */
+public class SectionActor extends Section {
+    // Drains the mailboxes of every actor section; drains never block, so one worker per core is enough
+    private static final Executor DRAINERS = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+
+    private final int batchSize; // Most commands handled in one drain before giving other sections a turn
+    private final ConcurrentLinkedQueue<Command> mailbox = new ConcurrentLinkedQueue<>(); // Commands from any thread, drained by one
+    private final AtomicBoolean scheduled = new AtomicBoolean(); // Set while a drain is queued or running
+    private final AtomicLong drains = new AtomicLong(); // Drains run so far
+    private final AtomicLong commandsHandled = new AtomicLong(); // Commands handled by those drains
+    private final AtomicInteger pendingStock = new AtomicInteger(); // Items posted for stocking that are not on the shelf or given back yet
+
+    // State below is only touched by the drain that currently owns the section
+    private int itemCount;
+    private boolean beingStocked = false;
+    private final Deque<CompletableFuture<Boolean>> waitlist = new ArrayDeque<>(); // Customers waiting for an item, first come first served
+    private final Deque<StockRequest> stockQueue = new ArrayDeque<>(); // Items waiting for shelf space or for another assistant to finish
+    private final Deque<CompletableFuture<Boolean>> stockingClaims = new ArrayDeque<>(); // Assistants waiting for the section, in arrival order
+    private volatile int capacity = Integer.MAX_VALUE; // Most items the shelf holds
+    private volatile int lowWatermark = LOW_STOCK_THRESHOLD; // At or below this the section is low on stock
+    private volatile int highWatermark = Integer.MAX_VALUE; // At or above this the section is nearly full
+
+    // Published copies of the state for readers outside the drain
+    private volatile int publishedItemCount;
+    private volatile boolean publishedBeingStocked = false;
+    private volatile int publishedWaitlistLength = 0;
+
+    private enum Op { BUY, TRY_BUY, STOCK, EXPIRE_STOCK, START_STOCKING, FINISH_STOCKING, PRUNE }
+
+    // One message in the mailbox
+    private static final class Command {
+        private final Op op;
+        private final CompletableFuture<Boolean> reply;
+        private final StockRequest stock; // The items to shelve, for STOCK and EXPIRE_STOCK
+
+        private Command(Op op, CompletableFuture<Boolean> reply, StockRequest stock) {
+            this.op = op;
+            this.reply = reply;
+            this.stock = stock;
+        }
+    }
+
+    // Items an assistant is putting on the shelf, some of which may still be waiting for room
+    private static final class StockRequest {
+        private final CompletableFuture<Integer> reply = new CompletableFuture<>(); // Completes with the items shelved
+        private int remaining;
+        private int shelved = 0;
+
+        private StockRequest(int count) {
+            this.remaining = count;
+        }
+    }
+
+    // SectionActor constructor
+    public SectionActor(String name, int initialItems, int batchSize) {
+        super(name, 0);
+        this.itemCount = initialItems;
+        this.publishedItemCount = initialItems;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Asks for an item, joining the back of the waitlist if none can be sold right now.
+     *
+     * @param timeoutNanos How long the customer is prepared to wait, in nanoseconds.
+     * @return Completes with true once an item is the customer's, or false when their patience runs out.
+     */
+    @Override
+    public CompletableFuture<Boolean> removeItemAsync(long timeoutNanos) {
+        CompletableFuture<Boolean> reply = new CompletableFuture<>();
+        // Whoever completes the future first wins: the drain handing over an item or the timeout
+        reply.completeOnTimeout(false, timeoutNanos, TimeUnit.NANOSECONDS);
+        reply.thenAccept(granted -> {
+            if (!granted) {
+                post(new Command(Op.PRUNE, null, null)); // drop the expired waiter from the waitlist
+            }
+        });
+        post(new Command(Op.BUY, reply, null));
+        return reply;
+    }
+
+    @Override
+    public void setCapacity(int capacity, int lowWatermark, int highWatermark) {
+        this.capacity = Math.max(1, capacity);
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = Math.min(highWatermark, this.capacity);
+    }
+
+    /**
+     * Adds items to the section, handing them straight to waiting customers.
+     * Items that do not fit, or that arrive while another assistant is stocking, wait in the section's
+     * stock queue until customers make room or the timeout passes.
+     *
+     * @param count        Items to add.
+     * @param timeoutNanos How long the items may wait for room, in nanoseconds.
+     * @return Completes with the number of items put on the shelf.
+     */
+    @Override
+    public CompletableFuture<Integer> addItemsAsync(int count, long timeoutNanos) {
+        return requestStock(count, timeoutNanos).reply;
+    }
+
+    // Posts a stock command and, unless it may wait forever, the command that gives up on it after the timeout
+    private StockRequest requestStock(int count, long timeoutNanos) {
+        StockRequest request = new StockRequest(count);
+        pendingStock.addAndGet(count);
+        post(new Command(Op.STOCK, null, request));
+        if (timeoutNanos < Long.MAX_VALUE / 2) {
+            CompletableFuture.delayedExecutor(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS)
+                    .execute(() -> post(new Command(Op.EXPIRE_STOCK, null, request)));
+        }
+        return request;
+    }
+
+    //method for posting a start or finish stocking command
+    private CompletableFuture<Boolean> stockingAsync(Op op) {
+        CompletableFuture<Boolean> reply = new CompletableFuture<>();
+        post(new Command(op, reply, null));
+        return reply;
+    }
+
+    // Adds a command to the mailbox and makes sure a drain is on its way
+    private void post(Command command) {
+        mailbox.add(command);
+        if (scheduled.compareAndSet(false, true)) {
+            DRAINERS.execute(this::drain);
+        }
+    }
+
+    // Handles up to batchSize commands, then hands out items and publishes the new state
+    private void drain() {
+        int handled = 0;
+        Command command;
+        while (handled < batchSize && (command = mailbox.poll()) != null) {
+            handle(command);
+            handled++;
+        }
+        settle();
+        publishedItemCount = itemCount;
+        publishedBeingStocked = beingStocked;
+        publishedWaitlistLength = waitlist.size();
+        drains.incrementAndGet();
+        commandsHandled.addAndGet(handled);
+
+        scheduled.set(false);
+        // A command posted after the last poll may have seen scheduled still set; pick it up here
+        if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            DRAINERS.execute(this::drain);
+        }
+    }
+
+    private void handle(Command command) {
+        switch (command.op) {
+            case BUY:
+                // Serve straight away only if nobody is queued ahead, so late arrivals cannot jump the queue
+                if (waitlist.isEmpty() && itemCount > 0 && !beingStocked) {
+                    if (command.reply.complete(true)) {
+                        itemCount--;
+                    }
+                } else if (!command.reply.isDone()) {
+                    waitlist.addLast(command.reply);
+                }
+                break;
+            case TRY_BUY:
+                boolean sold = waitlist.isEmpty() && itemCount > 0 && !beingStocked;
+                if (sold) {
+                    itemCount--;
+                }
+                command.reply.complete(sold);
+                break;
+            case STOCK:
+                stockQueue.addLast(command.stock);
+                settle(); // shelve what fits now, before any expiry in the same batch
+                break;
+            case EXPIRE_STOCK:
+                if (stockQueue.remove(command.stock)) {
+                    pendingStock.addAndGet(-command.stock.remaining);
+                    command.stock.reply.complete(command.stock.shelved); // the rest did not fit in time
+                }
+                break;
+            case START_STOCKING:
+                if (beingStocked) {
+                    stockingClaims.addLast(command.reply); // handed the section by the FINISH_STOCKING ahead of it
+                } else if (command.reply.complete(true)) {
+                    beingStocked = true;
+                }
+                break;
+            case FINISH_STOCKING:
+                beingStocked = false;
+                command.reply.complete(true);
+                settle(); // shelve the items that arrived while the section was being stocked, before the next assistant starts
+                // Pass the section straight to the next waiting assistant, skipping any that gave up
+                while (!beingStocked && !stockingClaims.isEmpty()) {
+                    beingStocked = stockingClaims.pollFirst().complete(true);
+                }
+                break;
+            case PRUNE:
+                waitlist.removeIf(CompletableFuture::isDone);
+                break;
+            default:
+                throw new IllegalStateException("Unknown section command " + command.op);
+        }
+    }
+
+    // Hands items to waiting customers and fills the room that leaves from the stock queue, until neither can move
+    private void settle() {
+        boolean shelvedAny = true;
+        while (shelvedAny) {
+            handOffToWaitlist();
+            shelvedAny = false;
+            while (!beingStocked && !stockQueue.isEmpty() && itemCount < capacity) {
+                StockRequest request = stockQueue.peekFirst();
+                int fits = Math.min(request.remaining, capacity - itemCount);
+                itemCount += fits;
+                request.remaining -= fits;
+                request.shelved += fits;
+                pendingStock.addAndGet(-fits);
+                shelvedAny = true;
+                if (request.remaining == 0) {
+                    stockQueue.pollFirst();
+                    request.reply.complete(request.shelved);
+                }
+            }
+        }
+    }
+
+    // Hands available items to waiting customers in arrival order, skipping any whose patience already ran out
+    private void handOffToWaitlist() {
+        while (itemCount > 0 && !beingStocked && !waitlist.isEmpty()) {
+            if (waitlist.pollFirst().complete(true)) {
+                itemCount--;
+            }
+        }
+    }
+
+    // Waits for a reply, keeping the caller's interrupt flag if it is interrupted
+    private static <T> T await(CompletableFuture<T> reply) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return reply.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void addItemFromSection(int count) {
+        addItemsWithin(count, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int addItemsWithin(int count, long timeoutNanos) {
+        StockRequest request = requestStock(count, timeoutNanos);
+        try {
+            return request.reply.get();
+        } catch (InterruptedException e) {
+            post(new Command(Op.EXPIRE_STOCK, null, request)); // stop waiting for room; keep what was shelved
+            Thread.currentThread().interrupt();
+            return request.reply.join();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public boolean tryRemoveItem() {
+        return await(tryRemoveItemAsync());
+    }
+
+    // Takes an item only if one can be sold straight away, answering through a future
+    CompletableFuture<Boolean> tryRemoveItemAsync() {
+        CompletableFuture<Boolean> reply = new CompletableFuture<>();
+        post(new Command(Op.TRY_BUY, reply, null));
+        return reply;
+    }
+
+    @Override
+    public boolean removeItemWithin(long timeoutNanos) throws InterruptedException {
+        CompletableFuture<Boolean> reply = removeItemAsync(timeoutNanos);
+        try {
+            return reply.get();
+        } catch (InterruptedException e) {
+            if (reply.complete(false)) {
+                throw e; // gave up before an item was handed over
+            }
+            Thread.currentThread().interrupt(); // The item is already ours; keep it and pass the interrupt on
+            return reply.join();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public int getWaitlistLength() {
+        return publishedWaitlistLength;
+    }
+
+    // Claims the section for stocking through a future, which completes once any assistant ahead has finished
+    CompletableFuture<Boolean> startStockingAsync() {
+        return stockingAsync(Op.START_STOCKING);
+    }
+
+    @Override
+    public void startStockingProcess() throws InterruptedException {
+        CompletableFuture<Boolean> reply = stockingAsync(Op.START_STOCKING);
+        try {
+            reply.get();
+        } catch (InterruptedException e) {
+            if (reply.complete(false)) {
+                throw e; // gave up before the section was handed over
+            }
+            Thread.currentThread().interrupt(); // The section is already ours; keep the claim and pass the interrupt on
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void finishStockingProcess() {
+        await(finishStockingAsync());
+    }
+
+    // Releases the section, answering through a future once the next assistant has been handed it
+    CompletableFuture<Boolean> finishStockingAsync() {
+        return stockingAsync(Op.FINISH_STOCKING);
+    }
+
+    // Read from the state published by the last drain, so it may be a batch behind
+    @Override
+    public boolean canSellNow() {
+        return publishedWaitlistLength == 0 && publishedItemCount > 0 && !publishedBeingStocked;
+    }
+
+    @Override
+    public boolean isBeingStocked() {
+        return publishedBeingStocked;
+    }
+
+    @Override
+    public int getItemCount() {
+        return publishedItemCount;
+    }
+
+    @Override
+    public boolean isLowOnStock() {
+        return publishedItemCount <= lowWatermark;
+    }
+
+    @Override
+    public boolean isNearlyFull() {
+        return publishedItemCount >= highWatermark;
+    }
+
+    // Items still on their way to the shelf already have their room spoken for
+    @Override
+    public int getFreeSpace() {
+        return Math.max(0, capacity - publishedItemCount - pendingStock.get());
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    // There is no lock to hold, so a snapshot reads the count published by the last drain
+    @Override
+    int lockForSnapshot() {
+        return publishedItemCount;
+    }
+
+    @Override
+    void unlockAfterSnapshot() {
+    }
+
+    // Average number of commands handled per drain of the mailbox
+    public double getAverageBatchSize() {
+        long runs = drains.get();
+        return runs == 0 ? 0 : (double) commandsHandled.get() / runs;
+    }
+
+    // Drains of the mailbox run so far
+    public long getDrains() {
+        return drains.get();
+    }
+}
@@ -0,0 +1,38 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Binary protocol spoken between the coordinator and the partition processes that own sections.
+ * Every message has a fixed size, so no length prefix is needed and many messages can be packed into one write:
+ * a request is {long id, byte op, short section, int argument} and a response is {long id, int result}.
+ * Responses carry the id of their request, so any number of requests can be in flight on one connection.
+ */
+final class SectionProtocol {
+    static final int REQUEST_BYTES = Long.BYTES + Byte.BYTES + Short.BYTES + Integer.BYTES;
+    static final int RESPONSE_BYTES = Long.BYTES + Integer.BYTES;
+
+    static final byte BUY_WITHIN = 0; // argument: patience in milliseconds, -1 to wait forever; result 1 if bought
+    static final byte TRY_BUY = 1; // result 1 if an item was taken without waiting
+    static final byte ADD = 2; // argument: items to add
+    static final byte START_STOCKING = 3; // answered once the caller holds the section for stocking
+    static final byte FINISH_STOCKING = 5;
+    static final byte IS_BEING_STOCKED = 6; // result 1 if the section is being stocked
+    static final byte ITEM_COUNT = 7; // result: items on the shelf
+    static final byte WAITLIST_LENGTH = 8; // result: customers queueing
+    static final byte IS_LOW_ON_STOCK = 9; // result 1 if the section is low on stock
+    static final byte ITEMS_SOLD = 11; // result: items sold from the section since the partition started
+    static final byte SHUTDOWN = 12; // section ignored; the partition exits after answering
+    static final byte RETURN = 13; // argument: items a buyer gave back unused; they go back on the shelf and are no longer counted as sold
+
+    private SectionProtocol() {
+    }
+
+    // Writes one request; the buffer must have REQUEST_BYTES remaining
+    static void writeRequest(ByteBuffer buffer, long id, byte op, int section, int argument) {
+        buffer.putLong(id).put(op).putShort((short) section).putInt(argument);
+    }
+
+    // Writes one response; the buffer must have RESPONSE_BYTES remaining
+    static void writeResponse(ByteBuffer buffer, long id, int result) {
+        buffer.putLong(id).putInt(result);
+    }
+}
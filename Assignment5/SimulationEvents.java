@@ -0,0 +1,134 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the simulation, so purchases, stocking trips, deliveries and breaks
+ * appear on the same timeline as the JVM's own CPU, lock and GC events.
+ * Record with the bundled settings file:
+ * java -XX:StartFlightRecording:settings=thriftstore.jfc,filename=store.jfr ThriftStore
+ * and view the result in JDK Mission Control or with "jfr print --categories 'Thrift Store' store.jfr".
+ *
+ * Each event is begun before the work it covers and ended by record. When JFR is not recording the event type,
+ * shouldCommit is false and the fields are never filled in, so the only cost is two timestamp checks,
+ * and the JIT can remove the event object altogether.
+ */
+public final class SimulationEvents {
+    private SimulationEvents() {
+    }
+
+    // Fields shared by every simulation event
+    @Category("Thrift Store")
+    @StackTrace(false)
+    abstract static class SimulationEvent extends Event {
+        @Label("Tick")
+        @Description("Simulation tick at which the work finished")
+        int tick;
+
+        @Label("Section")
+        String section;
+
+        @Label("Actor")
+        @Description("The customer, assistant or thread doing the work")
+        String actor;
+
+        @Label("Simulated Ticks")
+        @Description("Length of the work in simulation ticks; the event's duration is the wall clock time")
+        int simulatedTicks;
+
+        /**
+         * Ends the event and commits it if JFR is recording this event type.
+         *
+         * @param tick           The current tick.
+         * @param section        The section involved, or null.
+         * @param actorKind      "Customer", "Assistant" and so on.
+         * @param actorId        The actor's id.
+         * @param simulatedTicks How long the work took in ticks.
+         */
+        final void record(int tick, String section, String actorKind, int actorId, int simulatedTicks) {
+            end();
+            if (shouldCommit()) {
+                this.tick = tick;
+                this.section = section;
+                this.actor = actorKind + " " + actorId;
+                this.simulatedTicks = simulatedTicks;
+                commit();
+            }
+        }
+    }
+
+    @Name("thriftstore.PurchaseAttempt")
+    @Label("Purchase Attempt")
+    @Category({"Thrift Store", "Customers"})
+    @Description("A customer asking for an item, including any time on the section's waitlist, and either getting it or giving up")
+    public static final class PurchaseAttempt extends SimulationEvent {
+        @Label("Abandoned")
+        @Description("The customer gave up on the section after waiting too long")
+        boolean abandoned;
+
+        // Marks the attempt as given up; call before record
+        void abandon() {
+            abandoned = true;
+        }
+    }
+
+    @Name("thriftstore.StockingPhase")
+    @Label("Stocking Phase")
+    @Category({"Thrift Store", "Assistants"})
+    @Description("One phase of an assistant's stocking trip: walking to a section, stocking it, or returning")
+    public static final class StockingPhase extends SimulationEvent {
+        @Label("Phase")
+        String phase;
+
+        @Label("Items")
+        int items;
+
+        StockingPhase(String phase, int items) {
+            this.phase = phase;
+            this.items = items;
+        }
+    }
+
+    @Name("thriftstore.Break")
+    @Label("Break")
+    @Category({"Thrift Store", "Assistants"})
+    @Description("An assistant on a break")
+    public static final class Break extends SimulationEvent {
+    }
+
+    @Name("thriftstore.Delivery")
+    @Label("Delivery")
+    @Category({"Thrift Store", "Deliveries"})
+    @Description("A delivery being put in the delivery box")
+    public static final class Delivery extends SimulationEvent {
+        @Label("Items")
+        int items;
+
+        @Label("Contents")
+        String contents;
+    }
+
+    @Name("thriftstore.EndOfDay")
+    @Label("End Of Day Analysis")
+    @Category({"Thrift Store", "Reports"})
+    @Description("The end of day tradeoffs analysis and report")
+    public static final class EndOfDay extends SimulationEvent {
+        @Label("Day")
+        int day;
+
+        @Label("Average Customer Wait")
+        double averageCustomerWaitTicks;
+
+        @Label("Average Assistant Work")
+        double averageAssistantWorkTicks;
+
+        @Label("Purchases")
+        long purchases;
+
+        @Label("Abandonments")
+        long abandonments;
+    }
+}
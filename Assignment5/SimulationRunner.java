@@ -0,0 +1,141 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs thrift store simulations from code, so a long-lived service can run many of them one after another.
+ * Every run gets its own headless ThriftStore, is driven for a fixed number of ticks and then has all of
+ * its actors shut down before the results are returned. The worker threads the actors run on belong to
+ * the runner and are reused by the next run instead of being created and thrown away each time.
+ */
+public class SimulationRunner implements AutoCloseable {
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000; // Longest wait for actors to finish at the end of a run
+    private final ExecutorService workers; // Pooled threads shared by all runs
+    private final AtomicInteger nextWorkerId = new AtomicInteger(1); // ID generator for worker thread names
+
+    // SimulationRunner constructor
+    public SimulationRunner() {
+        // Every actor blocks for most of its life, so the pool grows to the number of actors and then stays there
+        this.workers = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "SimulationWorker-" + nextWorkerId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs a simulation at the normal tick speed.
+     *
+     * @param config The configuration to run; it is copied, so the caller's Config is never modified.
+     * @param ticks  The number of ticks to simulate.
+     * @return The results of the run.
+     * @throws InterruptedException if the calling thread is interrupted during the run.
+     */
+    public RunResult runTicks(Config config, int ticks) throws InterruptedException {
+        return runTicks(config, ticks, ThriftStore.TICK_TIME_SIZE);
+    }
+
+    /**
+     * Runs a simulation for whole days.
+     *
+     * @param config         The configuration to run.
+     * @param days           The number of days to simulate.
+     * @param tickTimeMillis The duration of a tick; smaller values run the same simulation faster.
+     * @return The results of the run.
+     * @throws InterruptedException if the calling thread is interrupted during the run.
+     */
+    public RunResult runDays(Config config, int days, int tickTimeMillis) throws InterruptedException {
+        return runTicks(config, days * ThriftStore.TICKS_PER_DAY, tickTimeMillis);
+    }
+
+    /**
+     * Runs a simulation, shuts all of its actors down and returns the results.
+     *
+     * @param config         The configuration to run.
+     * @param ticks          The number of ticks to simulate.
+     * @param tickTimeMillis The duration of a tick; smaller values run the same simulation faster.
+     * @return The results of the run.
+     * @throws InterruptedException if the calling thread is interrupted during the run.
+     */
+    public RunResult runTicks(Config config, int ticks, int tickTimeMillis) throws InterruptedException {
+        ThriftStore store = new ThriftStore(new Config(config), false);
+        store.setTickTimeMillis(tickTimeMillis);
+        store.setActorExecutor(workers);
+        return drive(store, ticks, config.numberOfAssistants * 2);
+    }
+
+    /**
+     * Starts the actors of an already built store, drives it for the given ticks and shuts it down.
+     *
+     * @param store The store to run; it should be headless and not running yet.
+     * @param ticks     The number of ticks to simulate.
+     * @param customers The number of customer actors to start.
+     * @return The results of the run.
+     * @throws InterruptedException if the calling thread is interrupted during the run.
+     */
+    RunResult drive(ThriftStore store, int ticks, int customers) throws InterruptedException {
+        Config config = store.getConfig();
+        boolean cleanShutdown;
+        try {
+            store.launchActor(new DeliveryThread(store), "DeliveryThread");
+            store.openCheckouts();
+            for (int i = 0; i < config.numberOfAssistants; i++) {
+                store.hireAssistant();
+            }
+            for (int i = 0; i < customers; i++) {
+                store.admitCustomer();
+            }
+            for (int tick = 0; tick < ticks; tick++) {
+                store.sleepTicks(1);
+                store.simulateTick();
+            }
+        } finally {
+            cleanShutdown = store.shutdownActors(SHUTDOWN_TIMEOUT_MILLIS);
+        }
+        return new RunResult(store, ticks, cleanShutdown);
+    }
+
+    //getter for the worker pool, so callers can run related work on the same threads
+    ExecutorService getWorkers() {
+        return workers;
+    }
+
+    // Stops the worker pool; the runner cannot be used afterwards
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Runs the same simulation back to back: reactive stocking, stocking by the demand forecast,
+     * and the forecast together with demand driven deliveries. Shows that the worker threads are reused between runs.
+     * Customers keep walking in at a steady rate, so every run sees the same demand, and the last two runs are
+     * compared on empty shelves against the items delivered.
+     *
+     * @param args Optional number of ticks per run.
+     * @throws InterruptedException if the main thread is interrupted.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 4 * ThriftStore.TICKS_PER_DAY;
+        Config config = new Config(3, 1, 1, 1, 1, 1, 1, 0.1, 0.2, 0.15, 0.25, 0.05, 0.2, 100, 10, 1.5, 200, 300, 150);
+        config.setConsoleLogging(false); // the run summaries are the output
+        // About as many items asked for as the supplier ships, so neither schedule is starved or flooded
+        config.setCustomerArrivals(0.05, 1, config.customerPoolSize);
+        try (SimulationRunner runner = new SimulationRunner()) {
+            String[] names = {"Reactive stocking, fixed deliveries", "Proactive stocking, fixed deliveries", "Proactive stocking, demand driven deliveries"};
+            RunResult[] results = new RunResult[names.length];
+            for (int run = 0; run < names.length; run++) {
+                config.setProactiveStocking(run > 0);
+                config.setReplenishment(run > 1, config.supplierLeadTicks, config.reorderReviewTicks);
+                results[run] = runner.runTicks(config, ticks, 1);
+                System.out.printf("%s: %s%nLive threads after run: %d%n", names[run], results[run], Thread.activeCount());
+            }
+            RunResult fixed = results[1];
+            RunResult demandDriven = results[2];
+            System.out.printf("Demand driven vs fixed deliveries: %d vs %d section-ticks with an empty shelf, %d vs %d items delivered%n",
+                    demandDriven.emptySectionTicks, fixed.emptySectionTicks, demandDriven.itemsDelivered, fixed.itemsDelivered);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Feedback controller that adjusts the number of assistant threads while the simulation runs.
+ * It watches the live customer wait time, the delivered items waiting to be shelved and whether any section
+ * needs restocking, then hires or retires assistants within the configured bounds.
+ * A dead band around the wait-time target and a cooldown between changes stop it from flapping.
+ */
+public class StaffingController {
+    private final ThriftStore store;
+    private final List<int[]> staffingCurve = new ArrayList<>(); // {tick, assistants} samples for the current day
+    private long assistantTicks = 0; // Assistant-ticks spent today
+    private long totalAssistantTicks = 0; // Assistant-ticks spent over the whole run
+    private int lastChangeTick = Integer.MIN_VALUE / 2; // Tick of the most recent hire or retirement
+
+    // StaffingController constructor
+    public StaffingController(ThriftStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Called by the store once per tick. Accounts for the assistants on the floor and,
+     * every staffingEvaluationTicks, decides whether the staffing level should change.
+     *
+     * @param tick The tick that has just been simulated.
+     */
+    public synchronized void onTick(int tick) {
+        int assistants = store.getActiveAssistantCount();
+        assistantTicks += assistants;
+        totalAssistantTicks += assistants;
+
+        Config config = store.getConfig();
+        if (tick % config.staffingEvaluationTicks != 0) {
+            return;
+        }
+
+        double recentWait = store.drainRecentAverageWaitTime();
+        int stockableBacklog = store.getStockableBacklog(); // items held back by proactive stocking are not counted
+        boolean restockingNeeded = store.sectionsNeedRestocking();
+
+        int desired = decide(config, assistants, recentWait, stockableBacklog, restockingNeeded, tick);
+        while (assistants < desired && store.hireAssistant()) {
+            assistants++;
+        }
+        while (assistants > desired && store.retireAssistant()) {
+            assistants--;
+        }
+        if (assistants != config.numberOfAssistants) {
+            lastChangeTick = tick;
+            config.setNumberOfAssistants(assistants);
+            store.log(String.format("<Tick %d> Staffing changed to %d assistants (recent wait %.1f ticks, %d items waiting to be shelved).",
+                    tick, assistants, recentWait, stockableBacklog));
+        }
+        staffingCurve.add(new int[] {tick, assistants});
+    }
+
+    // Works out the staffing level for the next interval, keeping it unchanged inside the hysteresis band
+    private int decide(Config config, int assistants, double recentWait, int stockableBacklog,
+                       boolean restockingNeeded, int tick) {
+        if (tick - lastChangeTick < config.staffingCooldownTicks) {
+            return clamp(config, assistants);
+        }
+        double upperWait = config.targetWaitTicks * (1 + config.staffingHysteresis);
+        double lowerWait = config.targetWaitTicks * (1 - config.staffingHysteresis);
+        // Work is piling up faster than the current team can shelve it
+        boolean backlog = stockableBacklog > assistants * config.maxItemsPerDelivery;
+
+        if (recentWait > upperWait && (restockingNeeded || backlog)) {
+            return clamp(config, assistants + 1);
+        }
+        if (backlog && restockingNeeded) {
+            return clamp(config, assistants + 1);
+        }
+        if (recentWait < lowerWait && !restockingNeeded && !backlog) {
+            return clamp(config, assistants - 1);
+        }
+        return clamp(config, assistants);
+    }
+
+    private int clamp(Config config, int assistants) {
+        return Math.max(config.minAssistants, Math.min(config.maxAssistants, assistants));
+    }
+
+    /**
+     * Renders today's staffing curve for the end of day report and starts a new day.
+     *
+     * @return A summary of assistant-ticks and the staffing level at each evaluation.
+     */
+    public synchronized String takeDailyReport() {
+        StringBuilder curve = new StringBuilder();
+        for (int[] sample : staffingCurve) {
+            curve.append(String.format("%d:%d ", sample[0], sample[1]));
+        }
+        String report = String.format("Assistant-ticks today: %d (run total %d)%nStaffing curve <tick:assistants>: %s%n",
+                assistantTicks, totalAssistantTicks, curve.toString().trim());
+        staffingCurve.clear();
+        assistantTicks = 0;
+        return report;
+    }
+
+    //getter for the assistant-ticks spent over the whole run
+    public synchronized long getTotalAssistantTicks() {
+        return totalAssistantTicks;
+    }
+}
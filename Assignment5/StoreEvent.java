@@ -0,0 +1,58 @@
+/**
+ * Something that happened in the store, published on the StoreEventBus for observers such as the
+ * console, the GUI and file exporters. Events are immutable so one instance can be handed to every subscriber.
+ */
+public final class StoreEvent {
+    public enum Type {
+        TICK,        // The store finished a tick
+        PURCHASE,    // A customer was handed an item; value is the ticks they waited
+        ABANDONMENT, // A customer gave up waiting; value is the ticks they waited
+        WAIT,        // A customer wait was recorded; value is the ticks waited
+        CHECKOUT_WAIT, // A basket reached a cashier; value is the ticks it queued
+        WORK,        // An assistant's work time was recorded; value is its work ticks so far
+        STOCK,       // Items were put on a shelf; value is the number of items
+        DELIVERY,    // A delivery arrived; value is the number of items, message its contents
+        BREAK,       // An assistant finished a break; value is its length in ticks
+        REPORT,      // An end of day report; message is the report
+        MESSAGE      // A log line from an actor or the store
+    }
+
+    public final Type type;
+    public final int tick; // Store tick the event happened at
+    public final String actorKind; // "Customer", "Assistant" or "Store"
+    public final int actorId; // 0 for the store itself
+    public final String section; // Section involved, or null
+    public final int value; // Meaning depends on the type
+    public final String message; // Human readable text, or null
+
+    // StoreEvent constructor
+    public StoreEvent(Type type, int tick, String actorKind, int actorId, String section, int value, String message) {
+        this.type = type;
+        this.tick = tick;
+        this.actorKind = actorKind;
+        this.actorId = actorId;
+        this.section = section;
+        this.value = value;
+        this.message = message;
+    }
+
+    //method for building a log line event
+    public static StoreEvent message(int tick, String actorKind, int actorId, String message) {
+        return new StoreEvent(Type.MESSAGE, tick, actorKind, actorId, null, 0, message);
+    }
+
+    // One comma separated line: type, tick, actor kind, actor id, section, value, message
+    public String toCsv() {
+        return String.join(",", type.name(), Integer.toString(tick), actorKind, Integer.toString(actorId),
+                quote(section), Integer.toString(value), quote(message));
+    }
+
+    private static String quote(String text) {
+        return text == null ? "" : "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    @Override
+    public String toString() {
+        return message != null ? message : String.format("<Tick %d> %s %s %d %s %d", tick, type, actorKind, actorId, section, value);
+    }
+}
@@ -0,0 +1,334 @@
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * In-process publisher of StoreEvents. Actors publish and carry on; every subscriber has its own bounded
+ * buffer and its own delivery task, and only receives as many events as it has requested.
+ * What happens when a subscriber's buffer is full is chosen per subscriber, so a slow observer can only
+ * ever lose its own events, never hold up the customers, assistants or the tick thread:
+ * DROP discards the new event, SAMPLE discards the oldest buffered event to make room, and BLOCK makes
+ * the publisher wait for room, but never longer than the bus's block timeout, after which the event is dropped.
+ */
+public class StoreEventBus implements Flow.Publisher<StoreEvent>, AutoCloseable {
+    public enum Policy { DROP, SAMPLE, BLOCK }
+
+    /**
+     * The subscription every subscriber is handed in onSubscribe. Its counters only cover that one
+     * subscriber and stay readable after it has been completed or cancelled.
+     */
+    public interface CountedSubscription extends Flow.Subscription {
+        // Events handed to this subscriber so far
+        long getDelivered();
+
+        // Events this subscriber lost because its buffer was full
+        long getDropped();
+    }
+
+    private final int defaultBufferSize; // Buffer given to subscribers that do not choose one
+    private final long blockTimeoutNanos; // Longest a BLOCK subscriber can hold up a publisher
+    private final List<BusSubscription> subscriptions = new CopyOnWriteArrayList<>(); // Current subscribers
+    private final AtomicInteger nextDelivererId = new AtomicInteger(1); // ID generator for delivery thread names
+    private final ExecutorService deliverers; // Runs the delivery tasks; subscribers may block, so the pool grows as needed
+    private volatile boolean closed = false; // Set once no more events will be published
+
+    // StoreEventBus constructor
+    public StoreEventBus(int defaultBufferSize, long blockTimeoutMillis) {
+        this.defaultBufferSize = Math.max(1, defaultBufferSize);
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, blockTimeoutMillis));
+        this.deliverers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "StoreEvents-" + nextDelivererId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Subscribes with the default buffer, dropping new events when it is full
+    @Override
+    public void subscribe(Flow.Subscriber<? super StoreEvent> subscriber) {
+        subscribe(subscriber, Policy.DROP, defaultBufferSize, EnumSet.allOf(StoreEvent.Type.class));
+    }
+
+    /**
+     * Subscribes to some or all of the store's events.
+     *
+     * @param subscriber The observer; it must request events before it receives any.
+     * @param policy     What to do with new events when the subscriber's buffer is full.
+     * @param bufferSize Events held for the subscriber while it catches up.
+     * @param types      The event types the subscriber wants.
+     */
+    public void subscribe(Flow.Subscriber<? super StoreEvent> subscriber, Policy policy, int bufferSize, Set<StoreEvent.Type> types) {
+        BusSubscription subscription = new BusSubscription(subscriber, policy, Math.max(1, bufferSize), EnumSet.copyOf(types));
+        if (closed) {
+            subscriber.onSubscribe(subscription);
+            subscriber.onComplete();
+            return;
+        }
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+    }
+
+    // Whether anyone is listening for this type, so publishers can skip building events nobody will see
+    public boolean hasSubscribers(StoreEvent.Type type) {
+        for (BusSubscription subscription : subscriptions) {
+            if (subscription.types.contains(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hands an event to every subscriber that wants its type. Never waits, except for BLOCK subscribers
+     * whose buffer is full, and then for no longer than the block timeout.
+     *
+     * @param event The event to publish.
+     */
+    public void publish(StoreEvent event) {
+        if (closed) {
+            return;
+        }
+        for (BusSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    // Events dropped across the current subscribers so far; finished subscribers are no longer counted
+    public long getDroppedEvents() {
+        return subscriptions.stream().mapToLong(BusSubscription::getDropped).sum();
+    }
+
+    //describes the subscribers for the end of day report
+    public String describe() {
+        return String.format("%d subscriber(s), %d events delivered, %d dropped", subscriptions.size(),
+                subscriptions.stream().mapToLong(BusSubscription::getDelivered).sum(), getDroppedEvents());
+    }
+
+    /**
+     * Stops publishing. Subscribers are sent what is already in their buffers and then completed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (BusSubscription subscription : subscriptions) {
+            subscription.schedule(); // the pool's threads are daemons and go away once idle
+        }
+    }
+
+    /**
+     * Builds a subscriber that hands every event to an action, asking for batch events at a time.
+     *
+     * @param action What to do with each event.
+     * @param batch  How many events to request at once.
+     * @return A subscriber that can be passed to subscribe.
+     */
+    public static Flow.Subscriber<StoreEvent> subscriber(Consumer<StoreEvent> action, int batch) {
+        return subscriber(action, batch, () -> { });
+    }
+
+    /**
+     * Builds a subscriber that hands every event to an action, and runs onDone once the bus has completed it or it failed.
+     *
+     * @param action What to do with each event.
+     * @param batch  How many events to request at once.
+     * @param onDone Run after the last event.
+     * @return A subscriber that can be passed to subscribe.
+     */
+    public static Flow.Subscriber<StoreEvent> subscriber(Consumer<StoreEvent> action, int batch, Runnable onDone) {
+        return new Flow.Subscriber<StoreEvent>() {
+            private Flow.Subscription subscription;
+            private int received = 0; // Events received since the last request
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(batch);
+            }
+
+            @Override
+            public void onNext(StoreEvent event) {
+                action.accept(event);
+                if (++received == batch) {
+                    received = 0;
+                    subscription.request(batch);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                System.err.println("Store event subscriber failed: " + error);
+                onDone.run();
+            }
+
+            @Override
+            public void onComplete() {
+                onDone.run();
+            }
+        };
+    }
+
+    // One subscriber's buffer, demand and delivery task
+    private final class BusSubscription implements CountedSubscription {
+        private final Flow.Subscriber<? super StoreEvent> subscriber;
+        private final Policy policy;
+        private final int capacity;
+        private final Set<StoreEvent.Type> types;
+        private final ArrayDeque<StoreEvent> buffer; // Guarded by this subscription's monitor
+        private final AtomicLong demand = new AtomicLong(); // Events requested and not yet delivered
+        private final AtomicBoolean scheduled = new AtomicBoolean(); // Set while a delivery task is queued or running
+        private final AtomicLong delivered = new AtomicLong(); // Events handed to the subscriber
+        private final AtomicLong dropped = new AtomicLong(); // Events lost because the buffer was full
+        private volatile boolean cancelled = false;
+        private volatile boolean completed = false; // Set by the delivery task once onComplete has been sent
+        private final AtomicReference<Throwable> failure = new AtomicReference<>(); // Error waiting to be sent by the delivery task
+        private boolean failureSent = false; // Only touched by the delivery task
+
+        private BusSubscription(Flow.Subscriber<? super StoreEvent> subscriber, Policy policy, int capacity, Set<StoreEvent.Type> types) {
+            this.subscriber = subscriber;
+            this.policy = policy;
+            this.capacity = capacity;
+            this.types = Collections.unmodifiableSet(types);
+            this.buffer = new ArrayDeque<>(Math.min(capacity, 1024));
+        }
+
+        // Buffers an event by this subscriber's policy and makes sure a delivery task is on its way
+        private void offer(StoreEvent event) {
+            if (cancelled || !types.contains(event.type)) {
+                return;
+            }
+            synchronized (this) {
+                if (buffer.size() >= capacity) {
+                    switch (policy) {
+                        case SAMPLE:
+                            buffer.pollFirst(); // keep the most recent events
+                            dropped.incrementAndGet();
+                            break;
+                        case BLOCK:
+                            long remaining = blockTimeoutNanos;
+                            try {
+                                while (buffer.size() >= capacity && remaining > 0 && !cancelled) {
+                                    long start = System.nanoTime();
+                                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                                    remaining -= System.nanoTime() - start;
+                                }
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt(); // leave the decision to stop to the actor
+                            }
+                            if (buffer.size() >= capacity) {
+                                dropped.incrementAndGet();
+                                return;
+                            }
+                            break;
+                        default:
+                            dropped.incrementAndGet();
+                            return;
+                    }
+                }
+                buffer.addLast(event);
+            }
+            if (demand.get() > 0) {
+                schedule();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // The error goes out from the delivery task, so it can never overlap an onNext on another thread
+                failure.compareAndSet(null, new IllegalArgumentException("Subscribers must request a positive number of events, not " + n));
+                cancel();
+                schedule();
+                return;
+            }
+            // Add to the demand without overflowing, as Flow requires
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (this) {
+                buffer.clear();
+                notifyAll(); // release any publisher blocked on this subscriber
+            }
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                deliverers.execute(this::deliver);
+            }
+        }
+
+        // Hands buffered events to the subscriber while it has demand, on one thread at a time
+        private void deliver() {
+            try {
+                Throwable error = failure.get();
+                if (error != null) {
+                    if (!failureSent) {
+                        failureSent = true;
+                        subscriber.onError(error);
+                    }
+                    return;
+                }
+                while (!cancelled && demand.get() > 0) {
+                    StoreEvent event;
+                    synchronized (this) {
+                        event = buffer.pollFirst();
+                        if (event != null && policy == Policy.BLOCK) {
+                            notifyAll(); // room for a blocked publisher
+                        }
+                    }
+                    if (event == null) {
+                        break;
+                    }
+                    demand.decrementAndGet();
+                    subscriber.onNext(event);
+                    delivered.incrementAndGet();
+                }
+                if (closed && !cancelled && !completed && isEmpty()) {
+                    completed = true;
+                    subscriptions.remove(this);
+                    subscriber.onComplete();
+                }
+            } catch (RuntimeException e) {
+                cancel();
+                subscriber.onError(e);
+            } finally {
+                scheduled.set(false);
+            }
+            // Events or demand that arrived after the last check need another pass
+            if (failure.get() != null && !failureSent
+                    || !cancelled && !completed && (demand.get() > 0 && !isEmpty() || closed && isEmpty())) {
+                schedule();
+            }
+        }
+
+        private synchronized boolean isEmpty() {
+            return buffer.isEmpty();
+        }
+
+        @Override
+        public long getDelivered() {
+            return delivered.get();
+        }
+
+        @Override
+        public long getDropped() {
+            return dropped.get();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A consistent, immutable copy of a live store's state at one tick: section stock, the delivery box, the
+ * demand forecasts and the supplier orders in transit. Taken by ThriftStore.snapshot() and used to build
+ * forked stores that carry on with the same stock, clock, forecasts and incoming orders.
+ * Forks start with fresh customers and their own counters, so a fork's results only cover the ticks it ran.
+ * Forks share the snapshot's maps read-only and only copy a value into their own Section when they start,
+ * so any number of forks can be made from one snapshot.
+ */
+public class StoreSnapshot {
+    public final int tick;
+    public final int ticksSinceLastDelivery;
+    public final int activeCustomers;
+    public final Map<String, Integer> sectionItems; // Items on each section's shelf
+    public final Map<String, Integer> deliveryBox; // Items waiting to be stocked
+    public final Map<String, Double> salesRates; // The forecaster's smoothed sales per tick, per section
+    public final Map<String, Double> requestRates; // The forecaster's smoothed purchase requests per tick, per section
+    public final ReplenishmentEngine.State replenishment; // Orders in transit and supplier credit
+    public final long pauseNanos; // How long the live store was held still while the snapshot was taken
+
+    // StoreSnapshot constructor, called by ThriftStore while it holds the store still
+    StoreSnapshot(int tick, int ticksSinceLastDelivery, int activeCustomers, Map<String, Integer> sectionItems,
+                  Map<String, Integer> deliveryBox, Map<String, Double> salesRates, Map<String, Double> requestRates,
+                  ReplenishmentEngine.State replenishment, long pauseNanos) {
+        this.tick = tick;
+        this.ticksSinceLastDelivery = ticksSinceLastDelivery;
+        this.activeCustomers = activeCustomers;
+        this.sectionItems = Collections.unmodifiableMap(new HashMap<>(sectionItems));
+        this.deliveryBox = Collections.unmodifiableMap(new HashMap<>(deliveryBox));
+        this.salesRates = Collections.unmodifiableMap(new HashMap<>(salesRates));
+        this.requestRates = Collections.unmodifiableMap(new HashMap<>(requestRates));
+        this.replenishment = replenishment;
+        this.pauseNanos = pauseNanos;
+    }
+
+    // Items the section had when the snapshot was taken
+    public int itemsIn(String sectionName) {
+        return sectionItems.getOrDefault(sectionName, 0);
+    }
+
+    // Total items on the shelves when the snapshot was taken
+    public int totalItemsOnShelves() {
+        return sectionItems.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
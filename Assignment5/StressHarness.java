@@ -0,0 +1,364 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless stress and soak harness for the store's locking protocol.
+ * Each scenario drives the real Customer, Assistant and DeliveryThread actors with ticks compressed to a millisecond,
+ * while a watchdog uses ThreadMXBean to look for deadlocks, for actors stuck in a single untimed wait,
+ * and for customers queueing while nothing in the store makes progress.
+ * Every scenario reports purchases and restocks per second and purchase latency percentiles.
+ *
+ * Usage: java StressHarness [scenario name] [customer scale]
+ */
+public class StressHarness {
+    private static final int TICK_TIME_MILLIS = 1; // Compressed tick duration used by every scenario
+    private static final long SAMPLE_INTERVAL_MILLIS = 250; // How often the watchdog looks at the threads
+    private static final long STALL_TIMEOUT_MILLIS = 5_000; // How long without progress counts as a stall
+
+    /**
+     * Runs the selected scenarios and exits with status 1 if any of them failed.
+     *
+     * @param args Optional scenario name to run on its own, and a multiplier for the number of customers.
+     * @throws InterruptedException if the harness is interrupted.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String only = args.length > 0 ? args[0] : null;
+        double scale = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+        int failures = 0;
+        try (SimulationRunner runner = new SimulationRunner()) {
+            for (Scenario scenario : scenarios(scale)) {
+                if (only != null && !only.equals(scenario.name)) {
+                    continue;
+                }
+                ScenarioReport report = run(runner, scenario);
+                System.out.println(report);
+                if (!report.passed()) {
+                    failures++;
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "All scenarios passed." : failures + " scenario(s) failed.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    // The scenarios the harness knows about
+    private static List<Scenario> scenarios(double scale) {
+        List<Scenario> scenarios = new ArrayList<>();
+
+        // Ten thousand customers queueing on a single section with frequent small deliveries
+        Config crowd = baseConfig(3, 1, 0);
+        crowd.setDeliveryFrequencyTicks(20);
+        scenarios.add(new Scenario("crowd-one-section", withPatience(crowd, 20.0), (int) (10_000 * scale), 3_000));
+
+        // The same crowd with the section run as an actor, so every buy goes through its mailbox
+        Config actorCrowd = withPatience(crowd, 20.0);
+        actorCrowd.setSectionActors(true, 64);
+        scenarios.add(new Scenario("crowd-one-section-actors", actorCrowd, (int) (10_000 * scale), 3_000));
+
+        // No deliveries at all: stock runs out and every waiting customer has to give up rather than hang
+        Config noDeliveries = baseConfig(3, 1, 1);
+        noDeliveries.setDeliveryFrequencyTicks(Integer.MAX_VALUE);
+        scenarios.add(new Scenario("zero-deliveries", noDeliveries, (int) (1_000 * scale), 2_000));
+
+        // Forty assistants that go on a short break after every trip while deliveries keep arriving
+        Config breakStorm = new Config(40, 1, 1, 1, 1, 1, 1, 0.1, 0.2, 0.15, 0.25, 0.05, 0.2, 5, 10, 1.5, 1, 1, 5);
+        breakStorm.setStaffingBounds(40, 40);
+        breakStorm.setConsoleLogging(false);
+        breakStorm.setReplenishment(true, breakStorm.supplierLeadTicks, breakStorm.reorderReviewTicks);
+        breakStorm.setSectionCapacity(30, breakStorm.lowStockWatermark, 24, breakStorm.stockingTimeoutTicks);
+        breakStorm.setMaxDeliveryBoxItems(100);
+        scenarios.add(new Scenario("break-storm", breakStorm, (int) (1_000 * scale), 3_000));
+
+        // Deliveries every other tick into small shelves that a handful of customers cannot empty:
+        // stocking must back off and deliveries must be held back rather than the delivery box growing without bound
+        Config overload = new Config(3, 1, 1, 1, 1, 1, 1, 0.1, 0.2, 0.15, 0.25, 0.05, 0.2, 2, 10, 1.5, 200, 300, 150);
+        overload.setStaffingBounds(3, 3);
+        overload.setConsoleLogging(false);
+        overload.setReplenishment(false, overload.supplierLeadTicks, overload.reorderReviewTicks);
+        overload.setSectionCapacity(10, 2, 8, 5);
+        overload.setMaxDeliveryBoxItems(50);
+        scenarios.add(new Scenario("overload", overload, (int) (20 * scale), 5_000));
+
+        // A long run at a normal load to catch slow leaks and rare interleavings
+        Config soak = baseConfig(3, 1, 1);
+        scenarios.add(new Scenario("soak", withPatience(soak, 5.0), (int) (200 * scale), 20_000));
+        return scenarios;
+    }
+
+    // A quiet configuration with the given assistants and the same number of sections in the first category and every other one
+    private static Config baseConfig(int assistants, int electronicsSections, int otherSections) {
+        Config config = new Config(assistants, electronicsSections, otherSections, otherSections, otherSections, otherSections, otherSections,
+                0.1, 0.2, 0.15, 0.25, 0.05, 0.2, 100, 10, 1.5, 200, 300, 150);
+        config.setStaffingBounds(assistants, assistants); // keep the staffing controller out of the way
+        config.setConsoleLogging(false);
+        // Order by demand, so a store with a single section is stocked rather than sent a random mix for sections it lacks
+        config.setReplenishment(true, config.supplierLeadTicks, config.reorderReviewTicks);
+        // Bounded shelves and delivery box, so the box bound is checked in every scenario built from here
+        config.setSectionCapacity(30, config.lowStockWatermark, 24, config.stockingTimeoutTicks);
+        config.setMaxDeliveryBoxItems(100);
+        return config;
+    }
+
+    // Copies a configuration with a different customer patience
+    private static Config withPatience(Config config, double patienceMultiplier) {
+        Config patient = new Config(config);
+        patient.setCustomerPatienceMultiplier(patienceMultiplier);
+        return patient;
+    }
+
+    /**
+     * Runs one scenario under the watchdog.
+     *
+     * @param runner   The runner whose worker pool the actors use.
+     * @param scenario The scenario to run.
+     * @return What the scenario achieved and what the watchdog found.
+     * @throws InterruptedException if the harness is interrupted.
+     */
+    static ScenarioReport run(SimulationRunner runner, Scenario scenario) throws InterruptedException {
+        ThriftStore store = new ThriftStore(new Config(scenario.config), false);
+        store.setTickTimeMillis(TICK_TIME_MILLIS);
+        store.setActorExecutor(runner.getWorkers());
+
+        Watchdog watchdog = new Watchdog(store);
+        Thread watchdogThread = new Thread(watchdog, "StressWatchdog");
+        watchdogThread.setDaemon(true);
+        watchdogThread.start();
+
+        // A subscriber far slower than the store, which must only ever lose its own events
+        store.getEventBus().subscribe(StoreEventBus.subscriber(event -> sleepQuietly(1), 16), StoreEventBus.Policy.DROP, 256,
+                EnumSet.allOf(StoreEvent.Type.class));
+        PurchaseCounter purchaseEvents = new PurchaseCounter();
+        store.getEventBus().subscribe(purchaseEvents, StoreEventBus.Policy.DROP, 1 << 16, EnumSet.of(StoreEvent.Type.PURCHASE));
+
+        long start = System.nanoTime();
+        RunResult result = runner.drive(store, scenario.ticks, scenario.customers);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        watchdogThread.interrupt();
+        watchdogThread.join();
+        // Held back deliveries keep the box within one delivery (or one supplier order) of its limit, plus what the
+        // assistants were carrying when the delivery came in: they only take what fits the shelves, and bring back what did not
+        Config config = store.getConfig();
+        long shelfCapacity = store.getCategories().stream().mapToLong(store::getShelfCapacity).sum();
+        long boxBound = config.maxDeliveryBoxItems + 2L * config.maxItemsPerDelivery + shelfCapacity;
+        if (config.maxDeliveryBoxItems > 0 && watchdog.maxDeliveryBoxDepth > boxBound) {
+            watchdog.findings.add(String.format("The delivery box reached %d items, above its bound of %d", watchdog.maxDeliveryBoxDepth, boxBound));
+        }
+        // Every purchase is published once, so the counter must have seen each one that was not dropped
+        if (!purchaseEvents.completed.await(5, TimeUnit.SECONDS)) {
+            watchdog.findings.add("The event bus did not complete its subscribers after shutdown");
+        } else if (purchaseEvents.received.get() + purchaseEvents.getDropped() < result.purchases) {
+            watchdog.findings.add(String.format("Only %d of %d purchases reached the event bus subscriber (%d dropped)",
+                    purchaseEvents.received.get(), result.purchases, purchaseEvents.getDropped()));
+        }
+        return new ScenarioReport(scenario, result, store.getPurchaseLatency(), seconds, watchdog.findings);
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Counts the purchase events published during a scenario
+    static class PurchaseCounter implements Flow.Subscriber<StoreEvent> {
+        final AtomicLong received = new AtomicLong();
+        final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        // Purchase events the bus dropped for this counter alone, not for the other subscribers
+        long getDropped() {
+            return subscription instanceof StoreEventBus.CountedSubscription
+                    ? ((StoreEventBus.CountedSubscription) subscription).getDropped() : 0;
+        }
+
+        @Override
+        public void onNext(StoreEvent event) {
+            received.incrementAndGet();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    // One stress scenario: a configuration, how many customers to start and how long to run
+    static class Scenario {
+        final String name;
+        final Config config;
+        final int customers;
+        final int ticks;
+
+        Scenario(String name, Config config, int customers, int ticks) {
+            this.name = name;
+            this.config = config;
+            this.customers = customers;
+            this.ticks = ticks;
+        }
+    }
+
+    // The outcome of one scenario
+    static class ScenarioReport {
+        final Scenario scenario;
+        final RunResult result;
+        final double seconds;
+        final long p50Micros;
+        final long p90Micros;
+        final long p99Micros;
+        final long maxMicros;
+        final List<String> findings;
+
+        ScenarioReport(Scenario scenario, RunResult result, LatencyHistogram latency, double seconds, List<String> findings) {
+            this.scenario = scenario;
+            this.result = result;
+            this.seconds = seconds;
+            this.p50Micros = TimeUnit.NANOSECONDS.toMicros(latency.percentile(50));
+            this.p90Micros = TimeUnit.NANOSECONDS.toMicros(latency.percentile(90));
+            this.p99Micros = TimeUnit.NANOSECONDS.toMicros(latency.percentile(99));
+            this.maxMicros = TimeUnit.NANOSECONDS.toMicros(latency.percentile(100));
+            this.findings = new ArrayList<>(findings);
+        }
+
+        // A scenario passes if the watchdog found nothing and every actor stopped when asked
+        boolean passed() {
+            return findings.isEmpty() && result.cleanShutdown;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(String.format(
+                    "[%s] %s: %d customers, %d ticks in %.2fs | purchases %d (%.0f/s), restocks %d (%.0f/s), abandonments %d | "
+                    + "purchase latency p50 %dus p90 %dus p99 %dus max %dus | clean shutdown %b",
+                    passed() ? "PASS" : "FAIL", scenario.name, scenario.customers, scenario.ticks, seconds,
+                    result.purchases, result.purchases / seconds, result.restocks, result.restocks / seconds, result.abandonments,
+                    p50Micros, p90Micros, p99Micros, maxMicros, result.cleanShutdown));
+            for (String finding : findings) {
+                text.append(System.lineSeparator()).append("    ").append(finding);
+            }
+            return text.toString();
+        }
+    }
+
+    // Samples the JVM's threads while a scenario runs and records deadlocks and stalls
+    private static class Watchdog implements Runnable {
+        private final ThriftStore store;
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private final Map<Long, long[]> untimedWaits = new HashMap<>(); // thread id -> {waited count, blocked count, first seen millis}
+        private final List<String> findings = new ArrayList<>();
+        private long lastProgress = -1;
+        private long lastProgressMillis = System.currentTimeMillis();
+        private boolean reportedDeadlock = false;
+        private boolean reportedNoProgress = false;
+        private int maxDeliveryBoxDepth = 0; // Deepest the delivery box was seen
+
+        Watchdog(ThriftStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+                    sample();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void sample() {
+            long now = System.currentTimeMillis();
+            maxDeliveryBoxDepth = Math.max(maxDeliveryBoxDepth, store.getDeliveryBoxDepth());
+            checkDeadlocks();
+            checkUntimedWaits(now);
+            checkProgress(now);
+        }
+
+        // Lock cycles between monitors or java.util.concurrent locks
+        private void checkDeadlocks() {
+            long[] deadlocked = threads.findDeadlockedThreads();
+            if (deadlocked == null || reportedDeadlock) {
+                return;
+            }
+            reportedDeadlock = true;
+            for (ThreadInfo info : threads.getThreadInfo(deadlocked, true, true)) {
+                if (info != null) {
+                    findings.add("DEADLOCK " + describe(info));
+                }
+            }
+        }
+
+        // Actors sitting in one untimed wait (no deadline, no wake-up) for longer than the stall timeout
+        private void checkUntimedWaits(long now) {
+            for (ThreadInfo info : threads.dumpAllThreads(false, false)) {
+                if (!info.getThreadName().startsWith("SimulationWorker-")) {
+                    continue;
+                }
+                Thread.State state = info.getThreadState();
+                if (state != Thread.State.WAITING && state != Thread.State.BLOCKED) {
+                    untimedWaits.remove(info.getThreadId());
+                    continue;
+                }
+                long[] seen = untimedWaits.get(info.getThreadId());
+                if (seen == null || seen[0] != info.getWaitedCount() || seen[1] != info.getBlockedCount()) {
+                    untimedWaits.put(info.getThreadId(), new long[] {info.getWaitedCount(), info.getBlockedCount(), now});
+                } else if (seen[2] >= 0 && now - seen[2] > STALL_TIMEOUT_MILLIS) {
+                    findings.add("STALLED " + describe(info));
+                    seen[2] = -1; // report each stuck wait once
+                }
+            }
+        }
+
+        // Customers queueing while no purchase, abandonment or restock has happened for the stall timeout
+        private void checkProgress(long now) {
+            long progress = store.getTotalPurchases() + store.getTotalAbandonments() + store.getTotalRestocks();
+            if (progress != lastProgress) {
+                lastProgress = progress;
+                lastProgressMillis = now;
+                return;
+            }
+            if (!reportedNoProgress && now - lastProgressMillis > STALL_TIMEOUT_MILLIS && store.getTotalWaitlistLength() > 0) {
+                reportedNoProgress = true;
+                findings.add(String.format("NO PROGRESS for %dms at tick %d with %d customers queueing",
+                        now - lastProgressMillis, store.getCurrentTick(), store.getTotalWaitlistLength()));
+            }
+        }
+
+        private String describe(ThreadInfo info) {
+            StringBuilder text = new StringBuilder(String.format("%s %s on %s", info.getThreadName(), info.getThreadState(), info.getLockName()));
+            if (info.getLockOwnerName() != null) {
+                text.append(" held by ").append(info.getLockOwnerName());
+            }
+            StackTraceElement[] stack = info.getStackTrace();
+            for (int i = 0; i < Math.min(4, stack.length); i++) {
+                text.append(" <- ").append(stack[i]);
+            }
+            return text.toString();
+        }
+    }
+}
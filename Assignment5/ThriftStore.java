@@ -1,12 +1,32 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -19,6 +39,9 @@ public class ThriftStore {
     private ThriftStoreGUI gui; // Graphical user interface for the store
     public static final int INITIAL_SECTION_ITEMS = 5; // Initial items per section
     public static final int TICK_TIME_SIZE = 50; // Duration of a tick in milliseconds
+    public static final int TICKS_PER_DAY = 1000; // Ticks in one simulated day
+    private static final long METRICS_DRAIN_MILLIS = 1_000; // Longest shutdown waits for buffered samples to reach the report lists
+    private volatile int tickTimeMillis = TICK_TIME_SIZE; // Duration of a tick for this store; runners may compress it
     private final Map<String, Section> sections = new ConcurrentHashMap<>(); // Sections in the store
     private final AtomicInteger tickCount = new AtomicInteger(); // Global tick count for simulation
     private final Random randgen = new Random(); // Random generator for various operations
@@ -26,16 +49,58 @@ public class ThriftStore {
     private Map<String, Integer> itemsForDelivery = new HashMap<>(); // Items waiting to be stocked
     public AtomicInteger nextAssistantId = new AtomicInteger(1); // ID generator for assistants
     public AtomicInteger nextCustomerId = new AtomicInteger(1); // ID generator for customers
-    private List<Assistant> assistantsList = new CopyOnWriteArrayList<>(); // List of store assistants
-    private List<Customer> customersList = new CopyOnWriteArrayList<>(); // List of store customers
+    private final ActorRegistry<Assistant> assistants = new ActorRegistry<>(); // Assistants on the floor
+    private final ActorRegistry<Customer> customers = new ActorRegistry<>(); // Customers in the store
+    private final BlockingQueue<Customer> customerPool; // Departed customers waiting to be reused by new arrivals
+    private final AtomicLong customersCreated = new AtomicLong(); // Customer objects allocated over the run
+    private final AtomicLong customersRecycled = new AtomicLong(); // Arrivals served by a pooled customer
+    private double arrivalCredit = 0; // Fractional arrivals carried between ticks; only touched by the tick thread
     private final List<Integer> customerWaitTimes = Collections.synchronizedList(new ArrayList<>()); // An array to store customer wait times
+    private final List<Integer> checkoutWaitTimes = Collections.synchronizedList(new ArrayList<>()); // An array to store checkout queue wait times
     private final List<Integer> assistantWorkTimes = Collections.synchronizedList(new ArrayList<>()); // An array to store assistant work times
-    private List<Integer> assistantBreakTimes = new ArrayList<>(); // An array to store assistant breaks
+    private final List<Integer> assistantBreakTimes = Collections.synchronizedList(new ArrayList<>()); // An array to store assistant breaks
+    private final CountDownLatch metricsDrained = new CountDownLatch(1); // Released once the metrics subscriber has recorded its last sample
     private AtomicInteger totalWaitTicks = new AtomicInteger(); // Initialiasing customer total wait ticks
     private AtomicInteger totalWalkTicks = new AtomicInteger(); // Initialising assistant total walk ticks
     private AtomicInteger totalStockTicks = new AtomicInteger(); // Initialising assistant total stock ticks
     private AtomicInteger totalBreakTicks = new AtomicInteger(); // Initialising assistant total break ticks
     private AtomicInteger totalWorkTicks = new AtomicInteger(); // Initialising assistant total work ticks
+    private final AtomicLong recentWaitSum = new AtomicLong(); // Wait ticks recorded since the staffing controller last looked
+    private final AtomicLong recentWaitCount = new AtomicLong(); // Wait samples recorded since the staffing controller last looked
+    private final StaffingController staffingController; // Adjusts the number of assistants at runtime
+    private volatile int lastDeliveryTick = 0; // Tick of the most recent delivery
+    private final AtomicBoolean skipNextDelivery = new AtomicBoolean(); // Set to drop the next scheduled delivery
+    private final List<IntConsumer> tickListeners = new CopyOnWriteArrayList<>(); // Told about every tick after the store has processed it
+    private final List<CheckoutLane> checkoutLanes = new ArrayList<>(); // Lanes customers queue in to pay
+    private final Object checkoutMonitor = new Object(); // Idle cashiers wait here for a basket to be queued
+    private final AtomicInteger idleCashiers = new AtomicInteger(); // Cashiers waiting on checkoutMonitor, so busy lanes skip the signal
+    private final DemandForecaster demandForecaster; // Predicts when each section will run low
+    private final LoadMonitor loadMonitor; // Arrivals, purchases, abandonments and restocks over the last few ticks
+    private final AtomicLong postponedBreaks = new AtomicLong(); // Breaks assistants put off because of a rush
+    private final ReplenishmentEngine replenishmentEngine; // Orders stock from the supplier by demand
+    private final AtomicLong totalItemsDelivered = new AtomicLong(); // Items delivered after the first delivery
+    private final AtomicLong emptySectionTicks = new AtomicLong(); // Sum over every tick of the sections that had nothing on the shelf
+    private final AtomicLong emptySectionHits = new AtomicLong(); // Purchases that found the section empty or being stocked
+    private final AtomicLong itemsDiverted = new AtomicLong(); // Items that did not fit their section and went to another one in the category
+    private final AtomicLong itemsReturnedToBox = new AtomicLong(); // Items that fitted nowhere in time and went back to the delivery box
+    private final AtomicLong deliveryHoldTicks = new AtomicLong(); // Ticks a delivery was due but held back because the box was full
+    private final AtomicLong totalRestocks = new AtomicLong(); // Stocking operations completed over the whole run
+    private final LatencyHistogram purchaseLatency = new LatencyHistogram(); // Time from asking for an item to getting it
+    private final AtomicLong totalWaitSum = new AtomicLong(); // Sum of every recorded customer wait, in ticks
+    private final AtomicLong totalWaitCount = new AtomicLong(); // Number of recorded customer waits
+    private final MetricsRecorder metricsRecorder; // History of the per-tick and per-section metrics
+    private final ThreadPoolExecutor metricsWriter; // Saves the metrics history off the tick thread; null when there is no metrics file
+    private final StoreEventBus eventBus; // Hands store events to the console, the GUI and any other observers
+    private final List<String> metricSectionNames; // Sections in the order their metrics are recorded
+    private final long[] lastSampledTotals = new long[5]; // Running totals at the previous sample: wait sum, wait count, purchases, abandonments, empty hits
+    private final AtomicLong totalPurchases = new AtomicLong(); // Purchases completed over the whole run
+    private final AtomicLong totalAbandonments = new AtomicLong(); // Customers that left after waiting too long
+    private final List<String> dailyReports = new CopyOnWriteArrayList<>(); // End of day reports produced so far
+    private volatile ExecutorService actorExecutor; // Pool the actors run on; null means one dedicated thread per actor
+    private final Set<TrackedActor> launchedActors = ConcurrentHashMap.newKeySet(); // Actors queued or running; each removes itself when done
+    private final Object actorMonitor = new Object(); // Guards liveActors and signals when actors finish
+    private int liveActors = 0; // Actors that have been launched and have not returned yet
+    private volatile boolean shuttingDown = false; // Set once the store stops launching actors
 
 
     /**
@@ -45,10 +110,126 @@ public class ThriftStore {
      */
 
     public ThriftStore(Config config) {
+        this(config, true);
+    }
+
+    /**
+     * Creates a ThriftStore object, optionally without a window so it can run inside a service.
+     *
+     * @param config  Configuration parameters for the thriftstore.
+     * @param withGui Whether to open the ThriftStoreGUI window.
+     */
+    public ThriftStore(Config config, boolean withGui) {
+        this(config, withGui, localSections(config));
+    }
+
+    // Builds plain locked sections, or section actors when the configuration asks for them
+    private static BiFunction<String, Integer, Section> localSections(Config config) {
+        if (config.sectionActors) {
+            return (name, initialItems) -> new SectionActor(name, initialItems, config.sectionMailboxBatch);
+        }
+        return Section::new;
+    }
+
+    /**
+     * Creates a ThriftStore whose sections are built by a factory, e.g. proxies for sections owned by another process.
+     *
+     * @param config         Configuration parameters for the thriftstore.
+     * @param withGui        Whether to open the ThriftStoreGUI window.
+     * @param sectionFactory Builds a section from its name and initial number of items.
+     */
+    ThriftStore(Config config, boolean withGui, BiFunction<String, Integer, Section> sectionFactory) {
+        this(config, withGui, sectionFactory, null);
+    }
+
+    /**
+     * Creates a headless fork of another store that continues from a snapshot of it.
+     *
+     * @param config   Configuration for the fork, usually a modified copy of the live store's.
+     * @param snapshot The state to start from.
+     */
+    public ThriftStore(Config config, StoreSnapshot snapshot) {
+        this(config, false, (name, initialItems) -> localSections(config).apply(name, snapshot.itemsIn(name)), snapshot);
+    }
+
+    // Shared constructor; a store built from a snapshot restores its clock, delivery box, forecasts and supplier orders
+    // instead of taking the first delivery
+    private ThriftStore(Config config, boolean withGui, BiFunction<String, Integer, Section> sectionFactory, StoreSnapshot snapshot) {
         this.config = config;
-        initializeSections();
-        initialDelivery();
-        gui = new ThriftStoreGUI(); // Initialise GUI
+        eventBus = new StoreEventBus(config.eventBufferSize, config.eventBlockMillis);
+        if (config.consoleLogging) {
+            eventBus.subscribe(StoreEventBus.subscriber(event -> System.out.println(event.message), 256),
+                    StoreEventBus.Policy.DROP, config.eventBufferSize, EnumSet.of(StoreEvent.Type.MESSAGE));
+        }
+        if (config.eventLogFile != null) {
+            // A slow disk only costs the log some lines; it never holds up an actor
+            eventBus.subscribe(new EventFileExporter(Paths.get(config.eventLogFile)), StoreEventBus.Policy.DROP,
+                    config.eventBufferSize, EnumSet.allOf(StoreEvent.Type.class));
+        }
+        // The report's samples must not be lost, so actors wait briefly for room here, never while holding a store lock
+        eventBus.subscribe(StoreEventBus.subscriber(this::recordSample, 256, metricsDrained::countDown), StoreEventBus.Policy.BLOCK,
+                config.eventBufferSize, EnumSet.of(StoreEvent.Type.WAIT, StoreEvent.Type.CHECKOUT_WAIT, StoreEvent.Type.WORK, StoreEvent.Type.BREAK));
+        customerPool = new ArrayBlockingQueue<>(Math.max(1, config.customerPoolSize));
+        loadMonitor = new LoadMonitor(this, config.loadWindowTicks);
+        initializeSections(sectionFactory);
+        demandForecaster = new DemandForecaster(this);
+        if (snapshot == null) {
+            replenishmentEngine = new ReplenishmentEngine(this);
+            initialDelivery();
+        } else {
+            tickCount.set(snapshot.tick);
+            lastDeliveryTick = snapshot.tick - snapshot.ticksSinceLastDelivery;
+            itemsForDelivery.putAll(snapshot.deliveryBox);
+            demandForecaster.restore(snapshot.salesRates, snapshot.requestRates);
+            replenishmentEngine = new ReplenishmentEngine(this, snapshot.replenishment);
+        }
+        for (int lane = 1; lane <= config.numberOfCheckoutLanes; lane++) {
+            checkoutLanes.add(new CheckoutLane(lane));
+        }
+        staffingController = new StaffingController(this);
+        metricSectionNames = sections.keySet().stream().sorted().collect(Collectors.toList());
+        metricsRecorder = new MetricsRecorder(metricNames(metricSectionNames), config.ticksPerMinute, config.metricsMemoryBudgetBytes);
+        if (config.metricsFile != null) {
+            // One save queued behind the running one is enough: it copies the history when it starts, so later requests are dropped
+            metricsWriter = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1), runnable -> {
+                Thread thread = new Thread(runnable, "MetricsWriter");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+            metricsWriter.allowCoreThreadTimeOut(true);
+        } else {
+            metricsWriter = null;
+        }
+        gui = withGui ? new ThriftStoreGUI() : null; // Initialise GUI
+        if (gui != null) {
+            // The window only needs to show recent activity, so it keeps the latest events if Swing falls behind
+            eventBus.subscribe(StoreEventBus.subscriber(this::showOnGui, 64), StoreEventBus.Policy.SAMPLE, config.eventBufferSize,
+                    EnumSet.of(StoreEvent.Type.TICK, StoreEvent.Type.MESSAGE, StoreEvent.Type.DELIVERY, StoreEvent.Type.REPORT));
+        }
+    }
+
+    // Shows an event in the window; runs on the event bus's delivery thread, never on an actor's
+    private void showOnGui(StoreEvent event) {
+        switch (event.type) {
+            case TICK:
+                gui.updateTick(event.tick);
+                break;
+            case DELIVERY:
+                gui.updateDeliveryInformation(event.message);
+                break;
+            case REPORT:
+                gui.updateAnalysisReport(event.message);
+                break;
+            case MESSAGE:
+                if ("Customer".equals(event.actorKind)) {
+                    gui.updateCustomerInformation(event.message);
+                } else if ("Assistant".equals(event.actorKind)) {
+                    gui.updateAssistantInformation(event.message);
+                }
+                break;
+            default:
+                break;
+        }
     }
 
     public ThriftStoreGUI getGui() {
@@ -91,22 +272,358 @@ public class ThriftStore {
      * @param assistant The assistant to add.
      */
     public void addAssistant(Assistant assistant) {
-        assistantsList.add(assistant);
+        assistants.register(assistant.getId(), assistant);
+    }
+
+    // Method to remove an assistant once its thread has finished
+    public void removeAssistant(Assistant assistant) {
+        assistants.deregister(assistant.getId(), assistant);
+    }
+
+    /**
+     * Hires a new assistant and starts its thread.
+     *
+     * @return true if the assistant was hired, false if the store is shutting down and it could not be started.
+     */
+    public boolean hireAssistant() {
+        Assistant assistant = new Assistant(this, nextAssistantId.getAndIncrement());
+        addAssistant(assistant);
+        if (!launchActor(assistant, "Assistant-" + assistant.getId())) {
+            removeAssistant(assistant);
+            return false;
+        }
+        return true;
+    }
+
+    //sets the pool that actors are launched on, or null for one dedicated thread per actor
+    public void setActorExecutor(ExecutorService actorExecutor) {
+        this.actorExecutor = actorExecutor;
+    }
+
+    /**
+     * Starts an actor (delivery, assistant or customer) and keeps track of it so it can be shut down.
+     *
+     * @param actor The actor to run.
+     * @param name  The thread name used when the actor gets a dedicated thread.
+     * @return false if the store is shutting down and the actor was not started.
+     */
+    public boolean launchActor(Runnable actor, String name) {
+        return launchActor(new TrackedActor(actor, null), name);
+    }
+
+    // Starts a tracked actor; a pooled customer passes the same handle for every visit, so launching it allocates nothing
+    private boolean launchActor(TrackedActor tracked, String name) {
+        ExecutorService executor = actorExecutor;
+        // Registering and starting under the monitor means shutdownActors either sees the actor or stops it from launching
+        synchronized (actorMonitor) {
+            if (shuttingDown) {
+                return false;
+            }
+            if (!tracked.state.compareAndSet(TrackedActor.IDLE, TrackedActor.QUEUED)) {
+                throw new IllegalStateException(name + " is already running");
+            }
+            liveActors++;
+            launchedActors.add(tracked);
+            if (executor == null) {
+                new Thread(tracked, name).start();
+                return true;
+            }
+            try {
+                executor.execute(tracked);
+            } catch (RejectedExecutionException e) {
+                // Never queued, so the caller still owns the actor and onRelease is not run
+                launchedActors.remove(tracked);
+                tracked.state.set(TrackedActor.IDLE);
+                liveActors--;
+                actorMonitor.notifyAll();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An actor as the store tracks it, run directly by the pool or by a dedicated thread.
+     * Its state goes from IDLE to QUEUED when launched, to RUNNING when a thread picks it up and back to IDLE when it returns.
+     * Cancelling a queued actor takes it straight back to IDLE; cancelling a running one interrupts the thread running it.
+     * Either way the live count is released exactly once, and only then is onRelease run, so a pooled customer's
+     * handle can be launched again for the next arrival.
+     */
+    final class TrackedActor implements Runnable {
+        private static final int IDLE = 0;
+        private static final int QUEUED = 1;
+        private static final int RUNNING = 2;
+        private final Runnable actor;
+        private final Runnable onRelease; // Run once the live count is released, or null
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+        private volatile Thread runner; // Set before the actor is claimed, so a cancel that sees RUNNING can interrupt it
+
+        private TrackedActor(Runnable actor, Runnable onRelease) {
+            this.actor = actor;
+            this.onRelease = onRelease;
+        }
+
+        @Override
+        public void run() {
+            runner = Thread.currentThread();
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                runner = null;
+                return; // cancelled before it started; cancel has released the count
+            }
+            try {
+                actor.run();
+            } finally {
+                runner = null;
+                release();
+            }
+        }
+
+        private void cancel() {
+            if (state.compareAndSet(QUEUED, IDLE)) {
+                release(); // the thread that picks it up will find it IDLE and return at once
+                return;
+            }
+            Thread thread = runner;
+            if (thread != null) {
+                thread.interrupt(); // a running actor releases its own count once it has unwound
+            }
+        }
+
+        //method for taking a finished or cancelled actor off the live count, exactly once per launch
+        private void release() {
+            launchedActors.remove(this);
+            state.set(IDLE);
+            synchronized (actorMonitor) {
+                liveActors--;
+                actorMonitor.notifyAll();
+            }
+            if (onRelease != null) {
+                onRelease.run();
+            }
+        }
+    }
+
+    /**
+     * Stops every actor the store has launched and waits for them to return.
+     *
+     * @param timeoutMillis The longest time to wait for the actors.
+     * @return true if all actors finished within the timeout.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public boolean shutdownActors(long timeoutMillis) throws InterruptedException {
+        synchronized (actorMonitor) {
+            shuttingDown = true;
+        }
+        for (TrackedActor tracked : launchedActors) {
+            tracked.cancel();
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            synchronized (actorMonitor) {
+                while (liveActors > 0) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    actorMonitor.wait(remaining);
+                }
+            }
+            return true;
+        } finally {
+            eventBus.close(); // subscribers get what is buffered and are completed, even if some actors overran
+            metricsDrained.await(METRICS_DRAIN_MILLIS, TimeUnit.MILLISECONDS); // so the final report sees every sample
+            if (metricsWriter != null) {
+                metricsWriter.shutdown(); // the last day's history is on disk before the run returns
+                metricsWriter.awaitTermination(METRICS_DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    //number of launched actors that are still running
+    public int getLiveActorCount() {
+        synchronized (actorMonitor) {
+            return liveActors;
+        }
+    }
+
+    /**
+     * Asks one working assistant to leave once its current stocking trip is finished.
+     *
+     * @return true if an assistant was asked to retire, false if none were left to retire.
+     */
+    public boolean retireAssistant() {
+        for (Assistant assistant : assistants) {
+            if (!assistant.isRetiring()) {
+                assistant.retire();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Starts one cashier per configured cashier, spreading their home lanes over the checkout lanes
+    public void openCheckouts() {
+        if (checkoutLanes.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < config.numberOfCashiers; i++) {
+            CheckoutLane homeLane = checkoutLanes.get(i % checkoutLanes.size());
+            launchActor(new Cashier(this, i + 1, homeLane), "Cashier-" + (i + 1));
+        }
+    }
+
+    /**
+     * Queues a customer's basket at the shorter of two randomly picked lanes and waits until it is checked out.
+     * If the store has no cashiers the customer leaves straight away, and a customer still queued after
+     * checkoutTimeoutTicks leaves the basket behind rather than waiting for cashiers that may never come.
+     *
+     * @param customerId The customer paying.
+     * @param items      The number of items in the basket.
+     * @return true if the basket was checked out, false if the customer gave up queueing.
+     * @throws InterruptedException if the customer is interrupted while queueing.
+     */
+    public boolean checkOut(int customerId, int items) throws InterruptedException {
+        if (items == 0 || config.numberOfCashiers == 0 || checkoutLanes.isEmpty()) {
+            return true;
+        }
+        CheckoutLane first = checkoutLanes.get(ThreadLocalRandom.current().nextInt(checkoutLanes.size()));
+        CheckoutLane second = checkoutLanes.get(ThreadLocalRandom.current().nextInt(checkoutLanes.size()));
+        CheckoutLane lane = first.getLength() <= second.getLength() ? first : second;
+        Basket basket = new Basket(customerId, items);
+        lane.enqueue(basket);
+        if (idleCashiers.get() > 0) {
+            synchronized (checkoutMonitor) {
+                checkoutMonitor.notify(); // one basket needs one cashier
+            }
+        }
+        // At least a millisecond per tick, so a run with no tick delay does not send everyone away unpaid
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos((long) config.checkoutTimeoutTicks * Math.max(1, tickTimeMillis));
+        if (basket.awaitCheckout(timeoutNanos)) {
+            return true;
+        }
+        if (!lane.remove(basket)) {
+            basket.awaitCheckout(); // a cashier took it just as the wait ran out and is scanning it now
+            return true;
+        }
+        log("Customer", customerId, String.format("<Tick %d> [Thread %d] Customer %d gave up queueing at lane %d and left %d items behind.",
+                getCurrentTick(), Thread.currentThread().getId(), customerId, lane.getNumber(), items));
+        return false;
+    }
+
+    /**
+     * Waits until a basket is queued at any checkout lane or the given number of ticks has passed.
+     * Cashiers call this instead of polling every tick when every lane is empty.
+     *
+     * @param maxTicks The longest time to wait, in ticks.
+     * @throws InterruptedException if the cashier is interrupted while waiting.
+     */
+    public void awaitCheckoutWork(int maxTicks) throws InterruptedException {
+        synchronized (checkoutMonitor) {
+            // Counted before the lanes are checked, so a customer queueing after the check is sure to see an idle cashier
+            idleCashiers.incrementAndGet();
+            try {
+                if (getCheckoutQueueLength() == 0) {
+                    checkoutMonitor.wait(Math.max(1L, (long) maxTicks * tickTimeMillis));
+                }
+            } finally {
+                idleCashiers.decrementAndGet();
+            }
+        }
+    }
+
+    // The lane with the most baskets waiting, or null if every lane is empty
+    public CheckoutLane getLongestCheckoutLane() {
+        CheckoutLane longest = null;
+        for (CheckoutLane lane : checkoutLanes) {
+            if (lane.getLength() > 0 && (longest == null || lane.getLength() > longest.getLength())) {
+                longest = lane;
+            }
+        }
+        return longest;
+    }
+
+    // Baskets waiting across every checkout lane
+    public int getCheckoutQueueLength() {
+        return checkoutLanes.stream().mapToInt(CheckoutLane::getLength).sum();
+    }
+
+    // Number of assistants that have not been asked to retire
+    public int getActiveAssistantCount() {
+        int working = 0;
+        for (Assistant assistant : assistants) {
+            if (!assistant.isRetiring()) {
+                working++;
+            }
+        }
+        return working;
+    }
+
+    //getter for the staffing controller
+    public StaffingController getStaffingController() {
+        return staffingController;
     }
 
     // Method to add a customer
     public void addCustomer(Customer customer) {
-        customersList.add(customer);
+        customers.register(customer.getId(), customer);
+    }
+
+    /**
+     * Lets a customer into the store and starts it shopping. The customer's state is taken from the pool
+     * of departed customers when one is available, so a steady stream of arrivals allocates almost nothing.
+     *
+     * @return The customer that arrived, or null if the store is shutting down.
+     */
+    public Customer admitCustomer() {
+        int id = nextCustomerId.getAndIncrement();
+        Customer customer = customerPool.poll();
+        if (customer == null) {
+            customer = new Customer(this, id, config.customerPatienceMultiplier);
+            customersCreated.incrementAndGet();
+        } else {
+            customer.reset(id, config.customerPatienceMultiplier);
+            customersRecycled.incrementAndGet();
+        }
+        addCustomer(customer);
+        TrackedActor visit = customer.getVisit();
+        if (visit == null) {
+            Customer visitor = customer;
+            // Built once per customer object; customerLeft runs only once run has returned, so a new arrival never shares the object with this visit
+            visit = new TrackedActor(visitor, () -> customerLeft(visitor));
+            customer.setVisit(visit);
+        }
+        if (!launchActor(visit, "Customer-" + id)) {
+            customerLeft(customer);
+            return null;
+        }
+        return customer;
+    }
+
+    // Called once a customer's visit has finished; takes it off the floor and keeps its state for the next arrival
+    public void customerLeft(Customer customer) {
+        if (customers.deregister(customer.getId(), customer)) {
+            customerPool.offer(customer); // dropped for the garbage collector if the pool is full
+        }
+    }
+
+    // Accessor methods for the registries
+    public Collection<Assistant> getAssistants() {
+        return assistants.view();
+    }
+
+    //getter for the customers in the store
+    public Collection<Customer> getCustomers() {
+        return customers.view();
     }
 
-    // Accessor methods for the lists
-    public List<Assistant> getAssistantsList() {
-        return assistantsList;
+    //getter for the customer objects allocated so far
+    public long getCustomersCreated() {
+        return customersCreated.get();
     }
 
-    //getters for customer list
-    public List<Customer> getCustomersList() {
-        return customersList;
+    //getter for the arrivals that reused a departed customer's state
+    public long getCustomersRecycled() {
+        return customersRecycled.get();
     }
 
     //getters for config
@@ -117,27 +634,44 @@ public class ThriftStore {
     /**
      * Initializes the sections of the store based on the configuration.
      */
-    private void initializeSections() {
+    private void initializeSections(BiFunction<String, Integer, Section> sectionFactory) {
+        int capacity = config.sectionCapacity > 0 ? config.sectionCapacity : Integer.MAX_VALUE;
+        int highWatermark = config.highStockWatermark > 0 ? config.highStockWatermark : capacity;
+        for (String sectionName : sectionNamesFor(config)) {
+            Section section = sectionFactory.apply(sectionName, INITIAL_SECTION_ITEMS);
+            section.setCapacity(capacity, config.lowStockWatermark, highWatermark);
+            sections.put(sectionName, section);
+        }
+    }
+
+    /**
+     * Lists the sections a store built from this configuration has.
+     *
+     * @param config The store configuration.
+     * @return The section names, category by category.
+     */
+    public static List<String> sectionNamesFor(Config config) {
         // Initialize each section type based on its configured number
-        addSections("electronics", config.numberOfElectronicsSections, INITIAL_SECTION_ITEMS);
-        addSections("clothing", config.numberOfClothingSections, INITIAL_SECTION_ITEMS);
-        addSections("furniture", config.numberOfFurnitureSections, INITIAL_SECTION_ITEMS);
-        addSections("toys", config.numberOfToysSections, INITIAL_SECTION_ITEMS);
-        addSections("sporting goods", config.numberOfSportingGoodsSections, INITIAL_SECTION_ITEMS);
-        addSections("books", config.numberOfBooksSections, INITIAL_SECTION_ITEMS);
+        List<String> sectionNames = new ArrayList<>();
+        addSectionNames(sectionNames, "electronics", config.numberOfElectronicsSections);
+        addSectionNames(sectionNames, "clothing", config.numberOfClothingSections);
+        addSectionNames(sectionNames, "furniture", config.numberOfFurnitureSections);
+        addSectionNames(sectionNames, "toys", config.numberOfToysSections);
+        addSectionNames(sectionNames, "sporting goods", config.numberOfSportingGoodsSections);
+        addSectionNames(sectionNames, "books", config.numberOfBooksSections);
+        return sectionNames;
     }
     
      /**
-     * Adds sections to the store.
+     * Adds the names of one category's sections.
      *
+     * @param sectionNames The list to add to.
      * @param baseName     The base name of the section.
      * @param count        The number of sections to add.
-     * @param initialItems The initial number of items for each section.
      */
-    private void addSections(String baseName, int count, int initialItems) {
+    private static void addSectionNames(List<String> sectionNames, String baseName, int count) {
         for (int i = 1; i <= count; i++) {
-            String sectionName = baseName + (count > 1 ? " " + i : "");
-            sections.put(sectionName, new Section(sectionName, initialItems));
+            sectionNames.add(baseName + (count > 1 ? " " + i : ""));
         }
     }
 
@@ -164,13 +698,177 @@ public class ThriftStore {
 
     //method for taking items from the delivery box
     public Map<String, Integer> takeItemsFromDelivery() {
+        Map<String, Long> room = stockableRoom(false);
         synchronized (deliveryLock) {
-            Map<String, Integer> itemsToStock = new HashMap<>(itemsForDelivery);
-            itemsForDelivery.clear();
+            Map<String, Integer> itemsToStock = new HashMap<>();
+            for (String category : new ArrayList<>(itemsForDelivery.keySet())) {
+                int taken = takeFromBox(category, roomFor(room, category, false));
+                if (taken > 0) {
+                    itemsToStock.put(category, taken);
+                }
+            }
             return itemsToStock;
         }
     }
 
+    /**
+     * Takes the delivered items for one stocking trip. Without proactive stocking this is the whole box.
+     * With it, only the categories the forecaster expects to run low soon are taken, most urgent first,
+     * and the rest are held back in the box until their sections need them.
+     *
+     * @return The items to stock, in the order the sections should be visited.
+     */
+    public Map<String, Integer> takeItemsForStockingTrip() {
+        if (!config.proactiveStocking) {
+            return takeItemsFromDelivery();
+        }
+        List<String> byUrgency = demandForecaster.byUrgency(getCategories());
+        Map<String, Long> room = stockableRoom(true);
+        synchronized (deliveryLock) {
+            Map<String, Integer> trip = new LinkedHashMap<>();
+            for (String category : byUrgency) {
+                if (itemsForDelivery.containsKey(category)) {
+                    int taken = takeFromBox(category, roomFor(room, category, true));
+                    if (taken > 0) {
+                        trip.put(category, taken);
+                    }
+                }
+            }
+            return trip;
+        }
+    }
+
+    /**
+     * Reads how many items of each category an assistant may take from the box: the free room on its shelves,
+     * or none when proactive stocking holds a category back until it is urgent. Sections take their own locks,
+     * or ask a partition, and so does the forecaster, so callers read this before locking the delivery box.
+     *
+     * @param onlyUrgent Whether categories the forecaster does not expect to run low soon are held back.
+     * @return The room per category that has sections.
+     */
+    private Map<String, Long> stockableRoom(boolean onlyUrgent) {
+        Map<String, Long> room = new HashMap<>();
+        for (String category : getCategories()) {
+            room.put(category, !onlyUrgent || demandForecaster.isUrgent(category) ? getFreeShelfSpace(category) : 0L);
+        }
+        return room;
+    }
+
+    // Room read by stockableRoom; a category with no sections is never full, but is never urgent either
+    private static long roomFor(Map<String, Long> room, String category, boolean onlyUrgent) {
+        return room.getOrDefault(category, onlyUrgent ? 0L : Integer.MAX_VALUE);
+    }
+
+    // Takes as many of a category's items out of the box as there is room for. The delivery lock must be held.
+    private int takeFromBox(String category, long room) {
+        int inBox = itemsForDelivery.getOrDefault(category, 0);
+        int taken = (int) Math.min(inBox, room);
+        if (taken == inBox) {
+            itemsForDelivery.remove(category);
+        } else {
+            itemsForDelivery.put(category, inBox - taken);
+        }
+        return taken;
+    }
+
+    //check if there is anything in the delivery box an assistant should be stocking now, and room on the shelves for it
+    public boolean hasStockingWork() {
+        Map<String, Long> room = stockableRoom(config.proactiveStocking);
+        synchronized (deliveryLock) {
+            return hasStockingWork(room);
+        }
+    }
+
+    // Whether the box holds items there is room for, by room read beforehand. The delivery lock must be held.
+    private boolean hasStockingWork(Map<String, Long> room) {
+        return itemsForDelivery.keySet().stream().anyMatch(category -> roomFor(room, category, config.proactiveStocking) > 0);
+    }
+
+    /**
+     * Items in the delivery box an assistant could take on a stocking trip right now: with proactive stocking
+     * only those of urgent categories, and in either mode no more than the shelves have room for.
+     * Items deliberately held back in the box are not work waiting to be done.
+     *
+     * @return The items that are waiting to be shelved.
+     */
+    public int getStockableBacklog() {
+        Map<String, Long> room = stockableRoom(config.proactiveStocking);
+        synchronized (deliveryLock) {
+            long backlog = 0;
+            for (Map.Entry<String, Integer> entry : itemsForDelivery.entrySet()) {
+                backlog += Math.min(entry.getValue(), roomFor(room, entry.getKey(), config.proactiveStocking));
+            }
+            return (int) backlog;
+        }
+    }
+
+    /**
+     * Room left on a category's shelves. A category the store has no sections for is never full,
+     * so its items are still collected from the box rather than piling up there.
+     *
+     * @param category The delivery category.
+     * @return Items that still fit across the category's sections.
+     */
+    public long getFreeShelfSpace(String category) {
+        List<String> names = getSectionNamesInCategory(category);
+        if (names.isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+        long free = 0;
+        for (String name : names) {
+            free += sections.get(name).getFreeSpace();
+        }
+        return free;
+    }
+
+    //most items a category's shelves hold together
+    public long getShelfCapacity(String category) {
+        return getSectionNamesInCategory(category).stream().mapToLong(name -> sections.get(name).getCapacity()).sum();
+    }
+
+    //whether the delivery box is full enough that deliveries should be held back
+    public boolean isDeliveryBoxFull() {
+        return config.maxDeliveryBoxItems > 0 && getDeliveryBoxDepth() >= config.maxDeliveryBoxItems;
+    }
+
+    //room left in the delivery box before deliveries are held back
+    public int getDeliveryBoxRoom() {
+        return config.maxDeliveryBoxItems > 0 ? Math.max(0, config.maxDeliveryBoxItems - getDeliveryBoxDepth()) : Integer.MAX_VALUE;
+    }
+
+    //count a tick in which a due delivery was held back because the box was full
+    public void recordDeliveryHeldBack() {
+        deliveryHoldTicks.incrementAndGet();
+    }
+
+    //getter for the ticks deliveries were held back so far
+    public long getDeliveryHoldTicks() {
+        return deliveryHoldTicks.get();
+    }
+
+    /**
+     * Waits until there is stocking work or the given number of ticks has passed.
+     * Assistants are woken early when a delivery arrives or when the forecaster predicts that a section will run low.
+     *
+     * @param maxTicks The longest time to wait, in ticks.
+     * @throws InterruptedException if the assistant is interrupted while waiting.
+     */
+    public void awaitStockingWork(int maxTicks) throws InterruptedException {
+        Map<String, Long> room = stockableRoom(config.proactiveStocking);
+        synchronized (deliveryLock) {
+            if (!hasStockingWork(room)) {
+                deliveryLock.wait(Math.max(1L, (long) maxTicks * tickTimeMillis));
+            }
+        }
+    }
+
+    // Wakes the assistants waiting in awaitStockingWork
+    private void signalStockingWork() {
+        synchronized (deliveryLock) {
+            deliveryLock.notifyAll();
+        }
+    }
+
     //meyhod for checking if a section needs to be restocked
     public boolean sectionsNeedRestocking() {
         return sections.values().stream().anyMatch(section -> section.isLowOnStock());
@@ -179,7 +877,27 @@ public class ThriftStore {
 
     //method for checking if a deklivery boc is empty
     public boolean deliveryBoxIsEmpty() {
-        return itemsForDelivery.isEmpty();
+        synchronized (deliveryLock) {
+            return itemsForDelivery.isEmpty();
+        }
+    }
+
+    //method for counting the items waiting in the delivery box
+    public int getDeliveryBoxDepth() {
+        synchronized (deliveryLock) {
+            return itemsForDelivery.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    //method for counting the customers waiting for an item in one section
+    public int getSectionWaitlistLength(String sectionName) {
+        Section section = sections.get(sectionName);
+        return section == null ? 0 : section.getWaitlistLength();
+    }
+
+    //method for counting the customers waiting across every section
+    public int getTotalWaitlistLength() {
+        return sections.values().stream().mapToInt(Section::getWaitlistLength).sum();
     }
 
     //method for checking if a section is low on items
@@ -200,12 +918,19 @@ public class ThriftStore {
         return section != null && !section.isBeingStocked();
     }
 
-    //method for customers to start stocking a section
-    public void startStockingSection(String sectionName) {
+    //method for assistants to claim a section for stocking, waiting while another assistant is stocking it
+    public boolean startStockingSection(String sectionName) throws InterruptedException {
         Section section = sections.get(sectionName);
-        if (section != null) {
-            section.startStockingProcess();
+        if (section == null) {
+            return false;
         }
+        section.startStockingProcess();
+        return true;
+    }
+
+    //method for checking if the store has a section with this name
+    public boolean hasSection(String sectionName) {
+        return sections.get(sectionName) != null;
     }
 
     //method to check if a section is currently being stocked
@@ -214,14 +939,79 @@ public class ThriftStore {
         return section != null && section.isBeingStocked();
     }
 
-    //method for stocking a section
-    public void stockSection(String sectionName, int itemCount) {
+    /**
+     * Stocks a section without overfilling it. When the shelf is full the assistant waits up to
+     * stockingTimeoutTicks for customers to make room; whatever still does not fit goes to another
+     * section of the same category with room, and failing that back into the delivery box.
+     *
+     * @param sectionName The section to stock.
+     * @param itemCount   Items the assistant brought.
+     * @return The items put on this section's shelf.
+     */
+    public int stockSection(String sectionName, int itemCount) {
         Section section = sections.get(sectionName);
-        if (section != null) {
-            section.addItemFromSection(itemCount);
+        if (section == null) {
+            return 0;
+        }
+        int shelved = section.addItemsWithin(itemCount, ticksToNanos(config.stockingTimeoutTicks));
+        if (shelved > 0) {
+            totalRestocks.incrementAndGet();
+            loadMonitor.record(LoadMonitor.Event.RESTOCK);
+            publishEvent(StoreEvent.Type.STOCK, "Store", 0, sectionName, shelved, null);
+        }
+        if (shelved < itemCount) {
+            divertOverflow(sectionName, itemCount - shelved);
+        }
+        return shelved;
+    }
+
+    // Puts items that did not fit their section into the category's other sections, and what is left back into the box
+    private void divertOverflow(String sectionName, int items) {
+        String category = categoryOf(sectionName);
+        for (String other : getSectionNamesInCategory(category)) {
+            if (items == 0) {
+                break;
+            }
+            if (!other.equals(sectionName)) {
+                int moved = sections.get(other).addItemsWithin(items, 0);
+                items -= moved;
+                itemsDiverted.addAndGet(moved);
+            }
+        }
+        if (items > 0) {
+            itemsReturnedToBox.addAndGet(items);
+            addToDeliveryBox(Map.of(category, items));
+            log(String.format("<Tick %d> %s is full; %d items went back to the delivery box.", getCurrentTick(), sectionName, items));
         }
     }
 
+    /**
+     * Stocks a section without waiting for it. With section actors the items are queued in the
+     * section's mailbox and the caller carries on; a locked section is stocked on the calling thread.
+     *
+     * @param sectionName The section to stock.
+     * @param itemCount   Items to add.
+     * @return Completes with the items put on this section's shelf; the rest are diverted as in stockSection.
+     *         Diverting can wait on other sections, so it runs on the common pool, never on a section's drain thread.
+     */
+    public CompletableFuture<Integer> stockSectionAsync(String sectionName, int itemCount) {
+        Section section = sections.get(sectionName);
+        if (section == null) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return section.addItemsAsync(itemCount, ticksToNanos(config.stockingTimeoutTicks)).thenApplyAsync(shelved -> {
+            if (shelved > 0) {
+                totalRestocks.incrementAndGet();
+                loadMonitor.record(LoadMonitor.Event.RESTOCK);
+                publishEvent(StoreEvent.Type.STOCK, "Store", 0, sectionName, shelved, null);
+            }
+            if (shelved < itemCount) {
+                divertOverflow(sectionName, itemCount - shelved);
+            }
+            return shelved;
+        }, ForkJoinPool.commonPool());
+    }
+
     //method for checking if an assistant hjas finished stocking
     public void finishStockingSection(String sectionName) {
         Section section = sections.get(sectionName);
@@ -233,17 +1023,195 @@ public class ThriftStore {
     //method for customers to buy items from a section
     public boolean buyItemFromSection(String sectionName) {
         Section section = sections.get(sectionName);
-        if (section != null) {
-            return section.removeItemFromSection();
+        if (section != null && section.removeItemFromSection()) {
+            demandForecaster.recordSale(sectionName);
+            return true;
         }
         return false;
     }
 
+    /**
+     * Lets a customer buy from a section, waiting on the section's waitlist for up to their patience.
+     *
+     * @param sectionName  The section to buy from.
+     * @param patienceTicks How many ticks the customer will wait for an item.
+     * @return true if the purchase succeeded, false if the customer gave up or the section does not exist.
+     * @throws InterruptedException if the customer is interrupted while waiting.
+     */
+    public boolean buyItemFromSection(String sectionName, int patienceTicks) throws InterruptedException {
+        Section section = sections.get(sectionName);
+        if (section == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        demandForecaster.recordRequest(sectionName);
+        if (section instanceof SectionActor) {
+            // An actor answers a buy in one mailbox round trip, so there is no separate try before waiting
+            if (!section.canSellNow()) {
+                emptySectionHits.incrementAndGet();
+            }
+            if (!section.removeItemWithin(patienceNanos(patienceTicks))) {
+                return false;
+            }
+        } else if (!section.tryRemoveItem()) {
+            emptySectionHits.incrementAndGet(); // the customer has to wait for this one
+            if (!section.removeItemWithin(patienceNanos(patienceTicks))) {
+                return false;
+            }
+        }
+        purchaseLatency.record(System.nanoTime() - start);
+        demandForecaster.recordSale(sectionName);
+        return true;
+    }
+
+    /**
+     * Buys from a section through a future. With section actors the request is queued in the section's
+     * mailbox and the future completes when the actor hands over an item or the customer's patience runs out;
+     * a locked section waits on the calling thread and returns a completed future.
+     * The returned future is the section's own, so completing it with false withdraws the customer from the waitlist.
+     *
+     * @param sectionName   The section to buy from.
+     * @param patienceTicks How many ticks the customer will wait for an item.
+     * @return Completes with true if the purchase succeeded, false if the customer gave up or the section does not exist.
+     */
+    public CompletableFuture<Boolean> buyItemFromSectionAsync(String sectionName, int patienceTicks) {
+        Section section = sections.get(sectionName);
+        if (section == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        long start = System.nanoTime();
+        demandForecaster.recordRequest(sectionName);
+        if (!section.canSellNow()) {
+            emptySectionHits.incrementAndGet();
+        }
+        CompletableFuture<Boolean> reply = section.removeItemAsync(patienceNanos(patienceTicks));
+        reply.thenAccept(purchased -> {
+            if (purchased) {
+                purchaseLatency.record(System.nanoTime() - start);
+                demandForecaster.recordSale(sectionName);
+            }
+        });
+        return reply;
+    }
+
+    //converts a customer's patience in ticks into nanoseconds at this store's tick length
+    private long patienceNanos(int patienceTicks) {
+        return ticksToNanos(patienceTicks);
+    }
+
+    //converts ticks into nanoseconds at this store's tick length
+    private long ticksToNanos(int ticks) {
+        return TimeUnit.MILLISECONDS.toNanos((long) ticks * tickTimeMillis);
+    }
+
+    //average commands handled per mailbox drain across the section actors, or 0 when sections use locks
+    public double getAverageMailboxBatch() {
+        return sections.values().stream().filter(section -> section instanceof SectionActor)
+                .mapToDouble(section -> ((SectionActor) section).getAverageBatchSize()).average().orElse(0);
+    }
+
+    //converts the time elapsed since a System.nanoTime() reading into ticks
+    public int ticksSince(long startNanos) {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickTimeMillis));
+        return (int) ((System.nanoTime() - startNanos) / tickNanos);
+    }
+
     //mnethod for getting the name of sections
     public String[] getSectionNames() {
         return sections.keySet().toArray(new String[0]);
     }
 
+    //method for getting the delivery category of a section, e.g. "electronics 2" -> "electronics"
+    public static String categoryOf(String sectionName) {
+        return sectionName.replaceAll("\\s\\d+$", "");
+    }
+
+    //delivery categories in this store, one per kind of section
+    public List<String> getCategories() {
+        return sections.keySet().stream().map(ThriftStore::categoryOf).distinct().sorted().collect(Collectors.toList());
+    }
+
+    //items of one category waiting in the delivery box
+    public int getDeliveryBoxCount(String category) {
+        synchronized (deliveryLock) {
+            return itemsForDelivery.getOrDefault(category, 0);
+        }
+    }
+
+    //getter for the supplier replenishment engine
+    public ReplenishmentEngine getReplenishmentEngine() {
+        return replenishmentEngine;
+    }
+
+    //getter for the items delivered after the first delivery
+    public long getTotalItemsDelivered() {
+        return totalItemsDelivered.get();
+    }
+
+    //section-ticks spent with an empty shelf
+    public long getEmptySectionTicks() {
+        return emptySectionTicks.get();
+    }
+
+    //method for getting the names of the sections that belong to a delivery category
+    public List<String> getSectionNamesInCategory(String category) {
+        return sections.keySet().stream()
+                       .filter(sectionName -> categoryOf(sectionName).equals(category))
+                       .collect(Collectors.toList());
+    }
+
+    /**
+     * Picks the section an assistant should take delivered items of a category to.
+     * Deliveries are labelled by category, so when a category has several sections the emptiest one is chosen.
+     *
+     * @param category The delivery category, or an exact section name.
+     * @return The section name to stock, or the category itself if no section matches.
+     */
+    public String resolveStockingTarget(String category) {
+        if (sections.containsKey(category)) {
+            return category;
+        }
+        return getSectionNamesInCategory(category).stream()
+                                                  .min((a, b) -> Integer.compare(getSectionItemCount(a), getSectionItemCount(b)))
+                                                  .orElse(category);
+    }
+
+    //method for getting the number of items in a section
+    public int getSectionItemCount(String sectionName) {
+        Section section = sections.get(sectionName);
+        return section == null ? 0 : section.getItemCount();
+    }
+
+    //getter for the demand forecaster
+    public DemandForecaster getDemandForecaster() {
+        return demandForecaster;
+    }
+
+    //adds a listener that is told the tick number after each simulated tick
+    public void addTickListener(IntConsumer listener) {
+        tickListeners.add(listener);
+    }
+
+    //sets how long one tick lasts in milliseconds, a runner can compress time with this
+    public void setTickTimeMillis(int tickTimeMillis) {
+        this.tickTimeMillis = tickTimeMillis;
+    }
+
+    //getter for the duration of one tick
+    public int getTickTimeMillis() {
+        return tickTimeMillis;
+    }
+
+    /**
+     * Sleeps the calling actor for the given number of ticks.
+     *
+     * @param ticks The number of ticks to sleep.
+     * @throws InterruptedException if the actor is interrupted while sleeping.
+     */
+    public void sleepTicks(int ticks) throws InterruptedException {
+        Thread.sleep((long) ticks * tickTimeMillis);
+    }
+
     // Getter method for the current tick count
     public int getCurrentTick() {
         return tickCount.get();
@@ -255,10 +1223,18 @@ public class ThriftStore {
     }
 
     //method for simulating delivery
-    public synchronized void simulateDelivery(Map<String, Integer> delivery) {
-        itemsForDelivery.putAll(delivery);
+    public void simulateDelivery(Map<String, Integer> delivery) {
+        addToDeliveryBox(delivery);
         logDelivery(delivery); // This method should log the delivery details.
     }
+
+    // Adds delivered items to the box, on top of anything the assistants have not collected yet
+    private void addToDeliveryBox(Map<String, Integer> delivery) {
+        synchronized (deliveryLock) {
+            delivery.forEach((category, items) -> itemsForDelivery.merge(category, items, Integer::sum));
+            deliveryLock.notifyAll(); // wake assistants waiting for work
+        }
+    }
     
 
     //method for incrementing tick count
@@ -268,7 +1244,7 @@ public class ThriftStore {
             // Optionally simulate real-time passing with Thread.sleep(TICK_TIME_SIZE);
         }
         //For debugging purposes
-        System.out.printf("Global tick count increased by %d, total now %d ticks.\n", ticks, tickCount.get());
+        log(String.format("Global tick count increased by %d, total now %d ticks.", ticks, tickCount.get()));
     }
 
 
@@ -281,18 +1257,38 @@ public class ThriftStore {
     public void simulateTick() {
         // Increment the tick count for each simulation tick
         tickCount.incrementAndGet();
-        gui.updateTick(tickCount.get());
+        loadMonitor.onTick(tickCount.get());
+        publishEvent(StoreEvent.Type.TICK, "Store", 0, null, 0, null);
+        staffingController.onTick(tickCount.get());
+        demandForecaster.onTick();
+        sampleMetrics(tickCount.get());
+        for (IntConsumer listener : tickListeners) {
+            listener.accept(tickCount.get());
+        }
+        admitArrivals();
+        if (config.proactiveStocking && hasStockingWork()) {
+            signalStockingWork(); // call idle assistants back before the section runs low
+        }
     
         // 1000 ticks represent one day in the simulation,
         // log a message at the end of each day
-        if (tickCount.get() % 1000 == 0) {
-            System.out.printf("<Tick %d> The day has ended. Preparing for a new day.%n", tickCount.get());
+        if (tickCount.get() % TICKS_PER_DAY == 0) {
+            log(String.format("<Tick %d> The day has ended. Preparing for a new day.", tickCount.get()));
             TradeoffsAnalysis();
         }
         
     }
     
         
+    // Lets in the customers due this tick at the configured arrival rate
+    private void admitArrivals() {
+        arrivalCredit += config.customerArrivalRate;
+        while (arrivalCredit >= 1) {
+            arrivalCredit--;
+            admitCustomer();
+        }
+    }
+
     // generating the initial delivery of items
     private Map<String, Integer> generateInitialDelivery() {
         Map<String, Integer> initialDelivery = new HashMap<>();
@@ -314,40 +1310,108 @@ public class ThriftStore {
     
 
     //the first delivery of the day
-    public synchronized void initialDelivery() {
+    public void initialDelivery() {
         Map<String, Integer> initialDelivery = generateInitialDelivery(); // Adjusted line
-        itemsForDelivery.putAll(initialDelivery);
+        addToDeliveryBox(initialDelivery);
         String deliveryLog = initialDelivery.entrySet().stream()
                                             .map(e -> e.getKey() + "=" + e.getValue())
                                             .collect(Collectors.joining(", "));
-        System.out.printf("<Tick %d> The first delivery: %s%n", getCurrentTick(), deliveryLog);
-        initialDelivery.forEach((sectionName, itemCount) -> sections.get(sectionName).addItemFromSection(itemCount));
+        log(String.format("<Tick %d> The first delivery: %s", getCurrentTick(), deliveryLog));
+        initialDelivery.forEach((category, itemCount) -> stockSection(resolveStockingTarget(category), itemCount));
     }
     
     //process the delivery
-    public synchronized void processDelivery(Map<String, Integer> delivery) {
-        itemsForDelivery.putAll(delivery);
+    public void processDelivery(Map<String, Integer> delivery) {
+        SimulationEvents.Delivery event = new SimulationEvents.Delivery();
+        event.begin();
+        lastDeliveryTick = getCurrentTick();
+        int items = delivery.values().stream().mapToInt(Integer::intValue).sum();
+        totalItemsDelivered.addAndGet(items);
+        addToDeliveryBox(delivery);
         logDelivery(delivery); // Log the delivery
-        gui.updateDeliveryInformation(delivery.toString());
+        publishEvent(StoreEvent.Type.DELIVERY, "Store", 0, null, items, delivery.toString());
+        if (event.isEnabled()) {
+            event.items = items;
+            event.contents = delivery.toString();
+        }
+        event.record(getCurrentTick(), null, "Thread", (int) Thread.currentThread().getId(), 0);
     }
     
+    //ticks since the last delivery arrived
+    public int getTicksSinceLastDelivery() {
+        return Math.max(0, getCurrentTick() - lastDeliveryTick);
+    }
+
+    //asks the delivery thread to drop the next scheduled delivery
+    public void skipNextDelivery() {
+        skipNextDelivery.set(true);
+    }
+
+    //used by the delivery thread: true once if the next delivery should be skipped
+    public boolean takeSkipNextDelivery() {
+        return skipNextDelivery.getAndSet(false);
+    }
+
+    /**
+     * Takes a consistent copy of the store's state. The delivery box and every section are locked together,
+     * in a fixed order, just long enough to copy their counts, so no purchase or restock can fall between two reads.
+     * The supplier's orders are copied just before, since the engine takes those locks itself while reviewing stock.
+     *
+     * @return The snapshot, including how long the store was held still.
+     */
+    public StoreSnapshot snapshot() {
+        List<String> names = metricSectionNames; // sorted, so every snapshot locks in the same order
+        Map<String, Integer> items = new HashMap<>();
+        Map<String, Integer> box;
+        long start;
+        long pause;
+        int tick;
+        Map<String, Double> salesRates;
+        Map<String, Double> requestRates;
+        ReplenishmentEngine.State replenishment = replenishmentEngine.getState();
+        synchronized (deliveryLock) {
+            int locked = 0;
+            start = System.nanoTime();
+            try {
+                for (String name : names) {
+                    items.put(name, sections.get(name).lockForSnapshot());
+                    locked++;
+                }
+                box = new HashMap<>(itemsForDelivery);
+                tick = tickCount.get();
+                salesRates = demandForecaster.getSalesRates();
+                requestRates = demandForecaster.getRequestRates();
+            } finally {
+                for (int i = 0; i < locked; i++) {
+                    sections.get(names.get(i)).unlockAfterSnapshot();
+                }
+                pause = System.nanoTime() - start;
+            }
+        }
+        return new StoreSnapshot(tick, Math.max(0, tick - lastDeliveryTick), Math.max(1, getActiveCustomerCount()),
+                items, box, salesRates, requestRates, replenishment, pause);
+    }
+
     //log delivery actions
     private void logDelivery(Map<String, Integer> delivery) {
         if (delivery.isEmpty()) {
-            System.out.println("<Tick " + getCurrentTick() + "> No items were delivered.");
+            log("<Tick " + getCurrentTick() + "> No items were delivered.");
             return;
         }
         String deliveryDetails = delivery.entrySet().stream()
                                          .map(entry -> entry.getKey() + ": " + entry.getValue())
                                          .collect(Collectors.joining(", "));
-        System.out.printf("<Tick %d> Deposit of items: %s%n", getCurrentTick(), deliveryDetails);
+        log(String.format("<Tick %d> Deposit of items: %s", getCurrentTick(), deliveryDetails));
     }
     
         
     // The report generation method
     public void TradeoffsAnalysis() {
+        SimulationEvents.EndOfDay event = new SimulationEvents.EndOfDay();
+        event.begin();
         double averageCustomerWaitTime = calculateAverage(customerWaitTimes);
         double averageAssistantWorkTime = calculateAverage(assistantWorkTimes);
+        double averageCheckoutWaitTime = calculateAverage(checkoutWaitTimes);
 
         String workBalanceMessage;
         if (averageAssistantWorkTime > averageCustomerWaitTime) {
@@ -358,49 +1422,341 @@ public class ThriftStore {
 
         String report = String.format("The day has ended, preparing for a new day! <1000 ticks> \n\n" + "End of Day Report and Analysis of Tradeoffs:\n" +
                 "Average Customer Wait Time: %.2f ticks\n" +
-                "Average Assistant Work Time: %.2f ticks\n\n" +
-                "%s\n", averageCustomerWaitTime, averageAssistantWorkTime, workBalanceMessage);
+                "Average Checkout Queue Wait Time: %.2f ticks (95th percentile %d ticks)\n" +
+                "Average Assistant Work Time: %.2f ticks\n" +
+                "95th Percentile Customer Wait Time: %d ticks\n" +
+                "Purchases That Found The Section Empty: %d\n" +
+                "Stocking Mode: %s\n" +
+                "Sections: %s\n" +
+                "Section-Ticks With An Empty Shelf: %d\n" +
+                "Deliveries: %s\n" +
+                "Load At End Of Day: %s\n" +
+                "Breaks Postponed During Rushes: %d\n" +
+                "Event Bus: %s\n" +
+                "Shelf Capacity: %s\n\n" +
+                "%s\n\n%s", averageCustomerWaitTime, averageCheckoutWaitTime, percentileOf(checkoutWaitTimes, 95),
+                averageAssistantWorkTime, getCustomerWaitPercentile(95),
+                emptySectionHits.get(), config.proactiveStocking ? "proactive (demand forecast)" : "reactive",
+                config.sectionActors ? String.format("actors, %.1f commands per mailbox drain", getAverageMailboxBatch()) : "locked",
+                getEmptySectionTicks(), config.demandDrivenDeliveries
+                        ? "demand driven, " + replenishmentEngine.describe()
+                        : "fixed every " + config.deliveryFrequencyTicks + " ticks",
+                loadMonitor.describe(), postponedBreaks.get(), eventBus.describe(), describeCapacity(),
+                workBalanceMessage, staffingController.takeDailyReport());
+
+        report += dailyHistory();
 
         // Logging to the console
-        System.out.println(report);
+        log(report);
+        dailyReports.add(report);
+        saveMetricsHistory();
 
         // Updating the GUI with the report and work balance message
-        if (gui != null) {
-            gui.updateAnalysisReport(report);
+        publishEvent(StoreEvent.Type.REPORT, "Store", 0, null, 0, report);
+        if (event.isEnabled()) {
+            event.day = getCurrentTick() / TICKS_PER_DAY;
+            event.averageCustomerWaitTicks = averageCustomerWaitTime;
+            event.averageAssistantWorkTicks = averageAssistantWorkTime;
+            event.purchases = totalPurchases.get();
+            event.abandonments = totalAbandonments.get();
+        }
+        event.record(getCurrentTick(), null, "Thread", (int) Thread.currentThread().getId(), TICKS_PER_DAY);
+    }
+
+    // One line summary of shelf capacity and backpressure for the end of day report
+    private String describeCapacity() {
+        String limit = config.sectionCapacity > 0
+                ? String.format("%d items per section (low %d, high %d)", config.sectionCapacity, config.lowStockWatermark, config.highStockWatermark)
+                : "unlimited";
+        long nearlyFull = sections.values().stream().filter(Section::isNearlyFull).count();
+        return String.format("%s, %d section(s) nearly full, %d items diverted, %d returned to the box, deliveries held back for %d ticks",
+                limit, nearlyFull, itemsDiverted.get(), itemsReturnedToBox.get(), deliveryHoldTicks.get());
+    }
+
+    // Names of the metrics recorded every tick: store-wide figures followed by two per section
+    private static List<String> metricNames(List<String> sectionNames) {
+        List<String> names = new ArrayList<>(List.of("wait ticks", "waits", "purchases", "abandonments", "empty section hits", "assistants", "delivery box", "checkout queue"));
+        for (String sectionName : sectionNames) {
+            names.add(sectionName + " items");
+            names.add(sectionName + " waitlist");
+        }
+        return names;
+    }
+
+    // Records this tick's metrics into the history
+    private void sampleMetrics(int tick) {
+        long[] totals = {totalWaitSum.get(), totalWaitCount.get(), totalPurchases.get(), totalAbandonments.get(), emptySectionHits.get()};
+        double[] values = new double[8 + 2 * metricSectionNames.size()];
+        values[0] = totals[0] - lastSampledTotals[0];
+        values[1] = totals[1] - lastSampledTotals[1];
+        values[2] = totals[2] - lastSampledTotals[2];
+        values[3] = totals[3] - lastSampledTotals[3];
+        values[4] = totals[4] - lastSampledTotals[4];
+        values[5] = getActiveAssistantCount();
+        values[6] = getDeliveryBoxDepth();
+        values[7] = getCheckoutQueueLength();
+        System.arraycopy(totals, 0, lastSampledTotals, 0, totals.length);
+        int column = 8;
+        for (String sectionName : metricSectionNames) {
+            Section section = sections.get(sectionName);
+            int items = section.getItemCount();
+            if (items == 0) {
+                emptySectionTicks.incrementAndGet();
+            }
+            values[column++] = items;
+            values[column++] = section.getWaitlistLength();
+        }
+        metricsRecorder.record(tick - 1, values); // ticks are counted from 1, the history from 0, so tick 1000 ends day 1
+    }
+
+    // Summarises the last week from the day tier of the metrics history
+    private String dailyHistory() {
+        int today = getCurrentTick();
+        int from = today - 7 * TICKS_PER_DAY;
+        MetricsRecorder.Series waitTicks = metricsRecorder.query("wait ticks", "day", from, today - 1);
+        MetricsRecorder.Series waits = metricsRecorder.query("waits", "day", from, today - 1);
+        MetricsRecorder.Series purchases = metricsRecorder.query("purchases", "day", from, today - 1);
+        StringBuilder history = new StringBuilder("\nRecent days <day: average customer wait, purchases>:\n");
+        for (int i = 0; i < waits.size(); i++) {
+            double averageWait = waits.mean[i] == 0 ? 0 : waitTicks.mean[i] / waits.mean[i]; // both means share the same tick count
+            history.append(String.format("Day %d: %.2f ticks, %d purchases%n", waits.startTicks[i] / TICKS_PER_DAY + 1,
+                    averageWait, Math.round(purchases.mean[i] * TICKS_PER_DAY)));
+        }
+        return history.toString();
+    }
+
+    // Asks the background writer to save the metrics history to the configured file, if there is one
+    private void saveMetricsHistory() {
+        if (metricsWriter != null) {
+            metricsWriter.execute(this::writeMetricsHistory);
+        }
+    }
+
+    // Writes the metrics history; runs on the metrics writer thread so the day end never waits for the disk
+    private void writeMetricsHistory() {
+        try {
+            metricsRecorder.saveTo(Paths.get(config.metricsFile));
+        } catch (IOException e) {
+            System.err.println("Could not save the metrics history to " + config.metricsFile + ": " + e.getMessage());
+        }
+    }
+
+    //getter for the metrics history
+    public MetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    // Publishes a simulation message from the store; the console prints it unless console logging is switched off
+    public void log(String message) {
+        log("Store", 0, message);
+    }
+
+    // Publishes a simulation message from an actor, so the console and the GUI can show it off the actor's thread
+    public void log(String actorKind, int actorId, String message) {
+        if (eventBus.hasSubscribers(StoreEvent.Type.MESSAGE)) {
+            eventBus.publish(StoreEvent.message(getCurrentTick(), actorKind, actorId, message));
+        }
+    }
+
+    /**
+     * Publishes a typed store event, without building it if nobody is subscribed to its type.
+     *
+     * @param type      What happened.
+     * @param actorKind "Customer", "Assistant" or "Store".
+     * @param actorId   The actor's id, or 0 for the store.
+     * @param section   The section involved, or null.
+     * @param value     The ticks or items the event is about.
+     * @param message   Text for the event, or null.
+     */
+    public void publishEvent(StoreEvent.Type type, String actorKind, int actorId, String section, int value, String message) {
+        if (eventBus.hasSubscribers(type)) {
+            eventBus.publish(new StoreEvent(type, getCurrentTick(), actorKind, actorId, section, value, message));
         }
     }
 
+    //getter for the event bus observers subscribe to
+    public StoreEventBus getEventBus() {
+        return eventBus;
+    }
+
     //calculate the averages
     private double calculateAverage(List<Integer> times) {
-        if (times.isEmpty()) return 0.0;
-        return times.stream().mapToInt(i -> i).average().orElse(0.0);
+        synchronized (times) {
+            if (times.isEmpty()) return 0.0;
+            return times.stream().mapToInt(i -> i).average().orElse(0.0);
+        }
+    }
+
+    /**
+     * Tail customer wait time over the whole run.
+     *
+     * @param percentile The percentile to return, between 0 and 100.
+     * @return The wait time in ticks that the given percentage of waits did not exceed.
+     */
+    public int getCustomerWaitPercentile(int percentile) {
+        return percentileOf(customerWaitTimes, percentile);
+    }
+
+    //getter for the average checkout queue wait over the whole run
+    public double getAverageCheckoutWaitTime() {
+        return calculateAverage(checkoutWaitTimes);
     }
 
-    //store customer wait time
-    public synchronized void recordCustomerWaitTime(int waitTime) {
-        System.out.println("Recording wait time: " + waitTime); // Debug log
-        customerWaitTimes.add(waitTime);
+    //getter for the tail checkout queue wait over the whole run
+    public int getCheckoutWaitPercentile(int percentile) {
+        return percentileOf(checkoutWaitTimes, percentile);
     }
 
+    //calculate a percentile of recorded times
+    private int percentileOf(List<Integer> times, int percentile) {
+        int[] sorted;
+        synchronized (times) {
+            sorted = times.stream().mapToInt(i -> i).sorted().toArray();
+        }
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    //getter for the number of purchases that found their section empty or being stocked
+    public long getEmptySectionHits() {
+        return emptySectionHits.get();
+    }
+
+    //getter for the average customer wait time over the whole run
+    public double getAverageCustomerWaitTime() {
+        return calculateAverage(customerWaitTimes);
+    }
+
+    //getter for the average assistant work time over the whole run
+    public double getAverageAssistantWorkTime() {
+        return calculateAverage(assistantWorkTimes);
+    }
+
+    //getter for the end of day reports produced so far
+    public List<String> getDailyReports() {
+        return dailyReports;
+    }
+
+    //count a completed purchase
+    public void recordPurchase() {
+        totalPurchases.incrementAndGet();
+        loadMonitor.record(LoadMonitor.Event.PURCHASE);
+    }
+
+    //count a customer who left without buying
+    public void recordAbandonment() {
+        totalAbandonments.incrementAndGet();
+        loadMonitor.record(LoadMonitor.Event.ABANDONMENT);
+    }
+
+    //count a customer starting a new shopping trip
+    public void recordArrival() {
+        loadMonitor.record(LoadMonitor.Event.ARRIVAL);
+    }
+
+    //count an assistant putting off a due break because the store is in a rush
+    public void recordPostponedBreak() {
+        postponedBreaks.incrementAndGet();
+    }
+
+    //getter for the breaks postponed so far
+    public long getPostponedBreaks() {
+        return postponedBreaks.get();
+    }
+
+    //getter for the purchases completed so far
+    public long getTotalPurchases() {
+        return totalPurchases.get();
+    }
+
+    //getter for the stocking operations completed so far
+    public long getTotalRestocks() {
+        return totalRestocks.get();
+    }
+
+    //getter for the purchase latency histogram
+    public LatencyHistogram getPurchaseLatency() {
+        return purchaseLatency;
+    }
+
+    //getter for the customers who left without buying
+    public long getTotalAbandonments() {
+        return totalAbandonments.get();
+    }
+
+    //store customer wait time; the sample reaches customerWaitTimes through the metrics subscriber
+    public void recordCustomerWaitTime(int waitTime) {
+        log("Recording wait time: " + waitTime); // Debug log
+        recentWaitSum.addAndGet(waitTime);
+        recentWaitCount.incrementAndGet();
+        totalWaitSum.addAndGet(waitTime);
+        totalWaitCount.incrementAndGet();
+        publishEvent(StoreEvent.Type.WAIT, "Customer", 0, null, waitTime, null);
+    }
+
+    /**
+     * Average of the wait times recorded since the last call, used as the live wait signal.
+     *
+     * @return The recent average wait in ticks, or 0 if no customer has finished waiting since.
+     */
+    public double drainRecentAverageWaitTime() {
+        long count = recentWaitCount.getAndSet(0);
+        long sum = recentWaitSum.getAndSet(0);
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+
+    //store the time a basket spent queueing at the checkout
+    public void recordCheckoutWaitTime(int waitTime) {
+        publishEvent(StoreEvent.Type.CHECKOUT_WAIT, "Customer", 0, null, waitTime, null);
+    }
 
     //store the assistant work time
-    public synchronized void recordAssistantWorkTime(int workTime) {
-        assistantWorkTimes.add(workTime);
+    public void recordAssistantWorkTime(int workTime) {
+        publishEvent(StoreEvent.Type.WORK, "Assistant", 0, null, workTime, null);
     }
 
-    public synchronized void recordAssistantBreakTime(int breakTime) {
-        assistantBreakTimes.add(breakTime);
+    // Adds a sample to the report lists; runs on the event bus's delivery thread, never on an actor's
+    private void recordSample(StoreEvent event) {
+        switch (event.type) {
+            case WAIT:
+                customerWaitTimes.add(event.value);
+                break;
+            case CHECKOUT_WAIT:
+                checkoutWaitTimes.add(event.value);
+                break;
+            case WORK:
+                assistantWorkTimes.add(event.value);
+                break;
+            case BREAK:
+                assistantBreakTimes.add(event.value);
+                break;
+            default:
+                break;
+        }
     }
     
     // check if the store is busy
     public boolean isStoreBusy() {
-       // store is busy if the number of active customers exceeds a threshold
-        return getActiveCustomerCount() > config.busyCustomerThreshold;
+        // store is busy if customers have been arriving faster than the busy rate over the recent window
+        LoadMonitor.Level level = getLoadLevel();
+        return level == LoadMonitor.Level.BUSY || level == LoadMonitor.Level.RUSH;
+    }
+
+    //how busy the store has been over the last loadWindowTicks ticks
+    public LoadMonitor.Level getLoadLevel() {
+        return loadMonitor.getLevel();
+    }
+
+    //getter for the sliding-window load counters
+    public LoadMonitor getLoadMonitor() {
+        return loadMonitor;
     }
     
     public int getActiveCustomerCount() {
-        // Active customers could be determined by customers currently in the store or attempting purchases
-        return customersList.size(); // Simplified example
+        // Customers leave the registry as soon as their thread finishes, so this is exact
+        return customers.size();
     }
 
 
@@ -430,28 +1786,24 @@ public class ThriftStore {
             1.5, // customerPatienceMultiplier
             200, // minBreakInterval
             300, // maxBreakInterval
-            150, // breakDurationTicks
-            1
+            150 // breakDurationTicks
     );
         ThriftStore store = new ThriftStore(config);
 
 
-        // Starting the delivery thread
-        // new Thread(new DeliveryThread(store), "DeliveryThread").start();
-        new Thread(new DeliveryThread(store)).start();
+        // Starting the delivery thread and the cashiers
+        store.launchActor(new DeliveryThread(store), "DeliveryThread");
+        store.openCheckouts();
     
-        // Starting multiple assistant threads based on config.numberOfAssistants
+        // Starting multiple assistant threads based on config.numberOfAssistants;
+        // the staffing controller hires and retires assistants from here on
         for (int i = 0; i < config.numberOfAssistants; i++) {
-            Assistant assistant = new Assistant(store, store.nextAssistantId.getAndIncrement());
-            store.addAssistant(assistant); // Add assistant to the store's list
-            new Thread(assistant, "Assistant-" + (i + 1)).start();
+            store.hireAssistant();
         }
     
         // Starting customer threads, adjusting for dynamic conditions based on configuration
         for (int i = 0; i < config.numberOfAssistants * 2; i++) { // Example: twice the number of assistants
-            Customer customer = new Customer(store, store.nextCustomerId.getAndIncrement(), config.customerPatienceMultiplier);
-            store.addCustomer(customer); // Add customer to the store's list
-            new Thread(customer, "Customer-" + (i + 1)).start();
+            store.admitCustomer(); // Add customer to the store's registry and start it
         }
 
         // Simulate thrift store operation
@@ -0,0 +1,157 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Answers "what happens over the next N ticks if..." questions about a running store without disturbing it.
+ * The live store is held still only for as long as it takes to copy its state into a StoreSnapshot;
+ * each scenario then gets its own headless store built from that snapshot with a modified Config
+ * and runs at compressed tick speed, all scenarios in parallel on the runner's worker pool.
+ */
+public class WhatIfForker {
+    private static final int FORK_TICK_TIME_MILLIS = 1; // Forks run at the runner's fastest tick
+    private final SimulationRunner runner;
+
+    // WhatIfForker constructor
+    public WhatIfForker(SimulationRunner runner) {
+        this.runner = runner;
+    }
+
+    /**
+     * Forks the live store once per scenario and runs every fork for the same number of ticks.
+     *
+     * @param live      The running store to fork; it keeps running undisturbed.
+     * @param scenarios The changes to try.
+     * @param ticks     How far ahead to simulate.
+     * @return One outcome per scenario, in the same order.
+     * @throws InterruptedException if the caller is interrupted while the forks run.
+     */
+    public List<Outcome> fork(ThriftStore live, List<Scenario> scenarios, int ticks) throws InterruptedException {
+        StoreSnapshot snapshot = live.snapshot();
+        List<Future<Outcome>> running = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            Callable<Outcome> task = () -> runFork(live.getConfig(), snapshot, scenario, ticks);
+            running.add(runner.getWorkers().submit(task));
+        }
+        List<Outcome> outcomes = new ArrayList<>();
+        for (Future<Outcome> future : running) {
+            try {
+                outcomes.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("What-if fork failed", e.getCause());
+            }
+        }
+        return outcomes;
+    }
+
+    // Builds a store from the snapshot with the scenario's changes applied and runs it
+    private Outcome runFork(Config liveConfig, StoreSnapshot snapshot, Scenario scenario, int ticks) throws InterruptedException {
+        Config config = new Config(liveConfig);
+        config.setConsoleLogging(false);
+        config.setMetricsHistory(config.ticksPerMinute, config.metricsMemoryBudgetBytes, null); // never overwrite the live history file
+        scenario.changes.accept(config);
+
+        ThriftStore fork = new ThriftStore(config, snapshot);
+        fork.setTickTimeMillis(FORK_TICK_TIME_MILLIS);
+        fork.setActorExecutor(runner.getWorkers());
+        if (scenario.skipNextDelivery) {
+            fork.skipNextDelivery();
+        }
+        RunResult result = runner.drive(fork, ticks, snapshot.activeCustomers);
+
+        Map<String, Integer> finalStock = new TreeMap<>();
+        for (String sectionName : fork.getSectionNames()) {
+            finalStock.put(sectionName, fork.getSectionItemCount(sectionName));
+        }
+        return new Outcome(scenario.name, snapshot, result, finalStock);
+    }
+
+    /**
+     * A change to try: a name, a modification of the live Config and whether to skip the next delivery.
+     */
+    public static class Scenario {
+        final String name;
+        final Consumer<Config> changes;
+        final boolean skipNextDelivery;
+
+        public Scenario(String name, Consumer<Config> changes, boolean skipNextDelivery) {
+            this.name = name;
+            this.changes = changes;
+            this.skipNextDelivery = skipNextDelivery;
+        }
+    }
+
+    /**
+     * What a forked future looked like at the end of its run.
+     */
+    public static class Outcome {
+        public final String scenario;
+        public final StoreSnapshot startedFrom;
+        public final RunResult result;
+        public final Map<String, Integer> finalStock;
+
+        Outcome(String scenario, StoreSnapshot startedFrom, RunResult result, Map<String, Integer> finalStock) {
+            this.scenario = scenario;
+            this.startedFrom = startedFrom;
+            this.result = result;
+            this.finalStock = finalStock;
+        }
+
+        // Items left on the shelves at the end of the fork
+        public int totalStock() {
+            return finalStock.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-22s avg wait %6.2f, p95 wait %4d, purchases %4d, abandonments %4d, empty hits %4d, stock %3d -> %3d",
+                    scenario, result.averageCustomerWaitTime, result.p95CustomerWaitTime, result.purchases, result.abandonments,
+                    result.emptySectionHits, startedFrom.totalItemsOnShelves(), totalStock());
+        }
+    }
+
+    /**
+     * Runs a live store in the background, forks it part way through and compares three futures.
+     *
+     * @param args Optional number of ticks to look ahead.
+     * @throws Exception if the live run or the forks fail.
+     */
+    public static void main(String[] args) throws Exception {
+        int ahead = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        Config config = new Config(3, 1, 1, 1, 1, 1, 1, 0.1, 0.2, 0.15, 0.25, 0.05, 0.2, 100, 10, 1.5, 200, 300, 150);
+        config.setConsoleLogging(false);
+        try (SimulationRunner runner = new SimulationRunner()) {
+            ThriftStore live = new ThriftStore(config, false);
+            live.setTickTimeMillis(5);
+            live.setActorExecutor(runner.getWorkers());
+            Thread liveRun = new Thread(() -> {
+                try {
+                    runner.drive(live, 1000, 60);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "LiveStore");
+            liveRun.start();
+            Thread.sleep(1500);
+
+            List<Scenario> scenarios = new ArrayList<>();
+            scenarios.add(new Scenario("as is", changes -> { }, false));
+            scenarios.add(new Scenario("two more assistants", changes -> {
+                changes.setNumberOfAssistants(changes.numberOfAssistants + 2);
+                changes.setStaffingBounds(changes.numberOfAssistants, changes.numberOfAssistants);
+            }, false));
+            scenarios.add(new Scenario("skip next delivery", changes -> { }, true));
+
+            List<Outcome> outcomes = new WhatIfForker(runner).fork(live, scenarios, ahead);
+            System.out.printf("Forked at tick %d; the live store was paused for %.1f microseconds.%n",
+                    outcomes.get(0).startedFrom.tick, outcomes.get(0).startedFrom.pauseNanos / 1000.0);
+            outcomes.forEach(System.out::println);
+            liveRun.join();
+        }
+    }
+}